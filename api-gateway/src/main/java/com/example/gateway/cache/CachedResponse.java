@@ -0,0 +1,12 @@
+package com.example.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+/**
+ * A 200 response kept by the gateway: the headers worth replaying, the full body,
+ * and how long it may be served for.
+ */
+public record CachedResponse(HttpHeaders headers, byte[] body, Duration ttl) {
+}
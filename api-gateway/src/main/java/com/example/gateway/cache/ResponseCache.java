@@ -0,0 +1,51 @@
+package com.example.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Size-weighted store of cached GET responses, keyed by route, path, query and the request's Accept
+ * (the same resource may be negotiated as JSON or CBOR).
+ * Total memory is bounded by body bytes, and each entry expires after its own TTL.
+ */
+public class ResponseCache {
+
+    // Rough per-entry cost of the key, headers and bookkeeping on top of the body
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private final Cache<Key, CachedResponse> entries;
+
+    public ResponseCache(long maxBytes) {
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, CachedResponse response) -> ENTRY_OVERHEAD + response.body().length)
+                .expireAfter(Expiry.writing((Key key, CachedResponse response) -> response.ttl()))
+                .build();
+    }
+
+    public CachedResponse get(Key key) {
+        return entries.getIfPresent(key);
+    }
+
+    public void put(Key key, CachedResponse response) {
+        entries.put(key, response);
+    }
+
+    /**
+     * Drop everything cached for the written path and its parents, e.g. a PUT to
+     * /products/5/stock evicts /products/5 and /products. Scans the keys, which is fine
+     * for writes since they are rare compared to the reads being cached.
+     */
+    public void invalidate(String writtenPath) {
+        entries.asMap().keySet().removeIf(key ->
+                writtenPath.equals(key.path()) || writtenPath.startsWith(key.path() + "/"));
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    public record Key(String routeId, String path, String query, String accept) {
+    }
+}
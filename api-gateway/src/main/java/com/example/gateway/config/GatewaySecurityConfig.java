@@ -1,8 +1,14 @@
 package com.example.gateway.config;
 
+import com.example.gateway.security.CachingReactiveAuthenticationManager;
+import com.example.gateway.security.InternalTokenSigner;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
@@ -12,7 +18,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.stream.Collectors;
 
 @Configuration
@@ -33,24 +42,47 @@ public class GatewaySecurityConfig {
         );
     }
 
+    // ✅ BCrypt runs here, never on the Netty event loop; bounded so a login storm queues instead of spawning threads
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordCheckScheduler(@Value("${gateway.auth.bcrypt.threads:4}") int threads,
+                                            @Value("${gateway.auth.bcrypt.queue-size:10000}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "bcrypt");
+    }
+
+    // ✅ Verified credentials are cached briefly so repeat callers skip BCrypt
+    @Bean
+    public ReactiveAuthenticationManager authenticationManager(MapReactiveUserDetailsService userDetailsService,
+                                                               PasswordEncoder encoder,
+                                                               Scheduler passwordCheckScheduler,
+                                                               @Value("${gateway.auth.cache.max-size:10000}") long maxSize,
+                                                               @Value("${gateway.auth.cache.ttl:60s}") Duration ttl) {
+        UserDetailsRepositoryReactiveAuthenticationManager bcrypt =
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        bcrypt.setPasswordEncoder(encoder);
+        bcrypt.setScheduler(passwordCheckScheduler);
+        return new CachingReactiveAuthenticationManager(bcrypt,
+                Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build());
+    }
+
     // ✅ Gateway-level Basic Auth config
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         ReactiveAuthenticationManager authenticationManager) {
         http
             .csrf(ServerHttpSecurity.CsrfSpec::disable)
             .authorizeExchange(exchange -> exchange
                     .pathMatchers("/eureka/**", "/actuator/**").permitAll()
                     .anyExchange().authenticated()
             )
-            .httpBasic(basic -> {}) // enable HTTP Basic Auth
+            .httpBasic(basic -> basic.authenticationManager(authenticationManager)) // enable HTTP Basic Auth
             .formLogin(form -> form.disable());
 
         return http.build();
     }
 
-    // ✅ Add Auth headers to downstream requests
+    // ✅ Add a signed identity token to downstream requests
     @Bean
-    public GlobalFilter addAuthHeadersFilter() {
+    public GlobalFilter addAuthHeadersFilter(InternalTokenSigner tokenSigner) {
         return (exchange, chain) ->
             exchange.getPrincipal()
                     .flatMap(principal -> {
@@ -62,8 +94,7 @@ public class GatewaySecurityConfig {
 
                             ServerWebExchange mutated = exchange.mutate()
                                     .request(exchange.getRequest().mutate()
-                                            .header("X-Auth-User", username)
-                                            .header("X-Auth-Roles", roles)
+                                            .header(InternalTokenSigner.HEADER, tokenSigner.tokenFor(username, roles))
                                             .build())
                                     .build();
 
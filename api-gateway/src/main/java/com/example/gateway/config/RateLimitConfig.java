@@ -0,0 +1,19 @@
+package com.example.gateway.config;
+
+import com.example.gateway.ratelimit.InMemoryRateLimitStore;
+import com.example.gateway.ratelimit.RateLimitProperties;
+import com.example.gateway.ratelimit.RateLimitStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RateLimitConfig {
+
+    // ✅ Per-instance buckets unless a shared store (e.g. Redis-backed) is defined elsewhere
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    public RateLimitStore rateLimitStore(RateLimitProperties properties) {
+        return new InMemoryRateLimitStore(properties.getMaxBuckets(), properties.getIdleExpiry());
+    }
+}
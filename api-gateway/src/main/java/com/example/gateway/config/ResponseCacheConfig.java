@@ -0,0 +1,20 @@
+package com.example.gateway.config;
+
+import com.example.gateway.cache.ResponseCache;
+import com.example.gateway.cache.ResponseCacheProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResponseCacheConfig {
+
+    // ✅ Bounded by cached body bytes; entry count published as gateway.response-cache.size
+    @Bean
+    public ResponseCache responseCache(ResponseCacheProperties properties, MeterRegistry registry) {
+        ResponseCache cache = new ResponseCache(properties.getMaxSize().toBytes());
+        Gauge.builder("gateway.response-cache.size", cache, ResponseCache::size).register(registry);
+        return cache;
+    }
+}
@@ -1,23 +1,30 @@
 package com.example.gateway.controller;
 
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
+/**
+ * Served by the routes' circuit breakers when a service is down, slow or its breaker is open.
+ * Mapped for every method, since the failed request may have been a POST/PUT/DELETE.
+ */
 @RestController
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
 public class FallbackController {
 
-    @GetMapping("/fallback/orders")
+    @RequestMapping("/fallback/orders")
     public Mono<String> orderFallback() {
         return Mono.just("⚠️ Order Service temporarily unavailable");
     }
 
-    @GetMapping("/fallback/products")
+    @RequestMapping("/fallback/products")
     public Mono<String> productFallback() {
         return Mono.just("⚠️ Product Service temporarily unavailable");
     }
 
-    @GetMapping("/fallback/customers")
+    @RequestMapping("/fallback/customers")
     public Mono<String> customerFallback() {
         return Mono.just("⚠️ Customer Service temporarily unavailable");
     }
@@ -0,0 +1,89 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.ratelimit.RateLimitProperties;
+import com.example.gateway.ratelimit.RateLimitStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Admission control: every authenticated user gets a token bucket per route, and each
+ * request takes tokens according to the configured path costs. When a bucket is empty
+ * the request is answered with 429 and a Retry-After header instead of being forwarded.
+ */
+@Component
+public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitGlobalFilter.class);
+
+    private final RateLimitStore store;
+    private final RateLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitGlobalFilter(RateLimitStore store, RateLimitProperties properties) {
+        this.store = store;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "none";
+        int cost = costOf(exchange.getRequest().getPath().value());
+
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("anonymous@" + remoteHost(exchange))
+                .flatMap(user -> store.tryConsume(user + "|" + routeId, cost,
+                        properties.getCapacity(), properties.getRefillPerSecond()))
+                .flatMap(decision -> {
+                    ServerHttpResponse response = exchange.getResponse();
+                    response.getHeaders().set("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
+                    if (decision.allowed()) {
+                        return chain.filter(exchange);
+                    }
+                    long retryAfterSeconds = Math.max(1, (decision.retryAfter().toMillis() + 999) / 1000);
+                    logger.warn("⛔ Rate limit hit on route {} for {}", routeId, exchange.getRequest().getURI());
+                    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                    return response.setComplete();
+                });
+    }
+
+    private int costOf(String path) {
+        for (Map.Entry<String, Integer> cost : properties.getCosts().entrySet()) {
+            if (pathMatcher.match(cost.getKey(), path)) {
+                return cost.getValue();
+            }
+        }
+        return 1;
+    }
+
+    private static String remoteHost(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return address != null ? address.getHostString() : "unknown";
+    }
+
+    @Override
+    public int getOrder() {
+        return -1; // Before logging and forwarding, so rejected requests cost nothing downstream
+    }
+}
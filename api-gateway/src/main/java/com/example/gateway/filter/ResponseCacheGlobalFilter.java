@@ -0,0 +1,226 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.cache.CachedResponse;
+import com.example.gateway.cache.ResponseCache;
+import com.example.gateway.cache.ResponseCacheProperties;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves repeat GETs of hot, shared resources (single products/customers) straight from
+ * the gateway. Downstream Cache-Control decides whether and for how long a response is kept,
+ * If-None-Match is answered with 304 from the cached ETag, and any write through the gateway
+ * evicts the written resource before and after it is forwarded.
+ *
+ * Identical GETs arriving while one is already on its way downstream wait for that response
+ * and share it (single flight), so a cold or just-expired hot key costs one downstream call.
+ */
+@Component
+public class ResponseCacheGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:s-maxage|max-age)=(\\d+)");
+    private static final Set<HttpMethod> WRITES = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+    private static final List<String> REPLAYED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY);
+
+    private final ResponseCache cache;
+    private final ResponseCacheProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<ResponseCache.Key, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public ResponseCacheGlobalFilter(ResponseCache cache, ResponseCacheProperties properties) {
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+
+        if (WRITES.contains(request.getMethod())) {
+            cache.invalidate(path);
+            return chain.filter(exchange).doFinally(signal -> cache.invalidate(path));
+        }
+        if (request.getMethod() != HttpMethod.GET || !isCacheable(path)) {
+            return chain.filter(exchange);
+        }
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        ResponseCache.Key key = new ResponseCache.Key(route != null ? route.getId() : "none",
+                path, request.getURI().getRawQuery(), acceptOf(request));
+        if (bypassRequested(request)) {
+            return chain.filter(exchange.mutate().response(new CachingResponse(exchange.getResponse(), key, null)).build());
+        }
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            return serve(exchange, cached, "HIT");
+        }
+
+        Sinks.One<CachedResponse> flight = Sinks.one();
+        Sinks.One<CachedResponse> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            // Someone is already fetching this; use their response, or go ourselves if they got none
+            return leader.asMono()
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(shared -> shared.isPresent() ? serve(exchange, shared.get(), "SHARED") : chain.filter(exchange));
+        }
+        ServerHttpResponse caching = new CachingResponse(exchange.getResponse(), key, flight);
+        return chain.filter(exchange.mutate().response(caching).build())
+                .doFinally(signal -> {
+                    inFlight.remove(key, flight);
+                    flight.tryEmitEmpty();
+                });
+    }
+
+    private boolean isCacheable(String path) {
+        for (String pattern : properties.getPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Part of the key: the same path may come back as JSON or CBOR depending on Accept
+    private static String acceptOf(ServerHttpRequest request) {
+        List<String> accept = request.getHeaders().get(HttpHeaders.ACCEPT);
+        return accept == null ? "" : String.join(",", accept).replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether the response varies only on request headers the key covers (Accept).
+     */
+    private static boolean variesOnlyOnKey(HttpHeaders headers) {
+        for (String vary : headers.getVary()) {
+            if (!vary.equalsIgnoreCase(HttpHeaders.ACCEPT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean bypassRequested(ServerHttpRequest request) {
+        String cacheControl = request.getHeaders().getCacheControl();
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-cache");
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, CachedResponse cached, String source) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().addAll(cached.headers());
+        response.getHeaders().set("X-Cache", source);
+
+        String etag = cached.headers().getETag();
+        if (etag != null && exchange.getRequest().getHeaders().getIfNoneMatch().contains(etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * How long the downstream allows this response to be reused; zero means not at all.
+     */
+    private Duration ttlOf(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE) || !variesOnlyOnKey(headers)) {
+            return Duration.ZERO;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return properties.getTtl();
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        if (directives.contains("no-store") || directives.contains("no-cache") || directives.contains("private")) {
+            return Duration.ZERO;
+        }
+        Matcher maxAge = MAX_AGE.matcher(directives);
+        return maxAge.find() ? Duration.ofSeconds(Long.parseLong(maxAge.group(1))) : properties.getTtl();
+    }
+
+    /**
+     * Buffers a 200 response on its way to the client, stores a copy if the downstream allows it,
+     * and hands it to any identical requests waiting on this flight.
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ResponseCache.Key key;
+        private final Sinks.One<CachedResponse> flight;
+
+        CachingResponse(ServerHttpResponse delegate, ResponseCache.Key key, Sinks.One<CachedResponse> flight) {
+            super(delegate);
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            Duration ttl = ttlOf(getHeaders());
+            // A response that may not be reused (private, no-store, Set-Cookie) is not handed to waiting requests
+            // either: the flight completes empty and each of them goes downstream itself
+            if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value() || ttl.isZero()) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(Flux.from(body))
+                    .defaultIfEmpty(bufferFactory().allocateBuffer(0))
+                    .flatMap(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        if (bytes.length <= properties.getMaxEntrySize().toBytes()) {
+                            HttpHeaders replayed = new HttpHeaders();
+                            for (String header : REPLAYED_HEADERS) {
+                                List<String> values = getHeaders().get(header);
+                                if (values != null) {
+                                    replayed.put(header, values);
+                                }
+                            }
+                            CachedResponse response = new CachedResponse(replayed, bytes, ttl);
+                            cache.put(key, response);
+                            if (flight != null) {
+                                flight.tryEmitValue(response);
+                            }
+                        }
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return -2; // Ahead of rate limiting (hits cost downstream nothing) and of the response writer
+    }
+}
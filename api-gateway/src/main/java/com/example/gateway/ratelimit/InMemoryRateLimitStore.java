@@ -0,0 +1,55 @@
+package com.example.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets held in this gateway instance. Each bucket is an immutable
+ * (tokens, timestamp) pair swapped with compare-and-set, so concurrent requests never block.
+ * Buckets idle for longer than {@code idleExpiry} are dropped and start full again.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, AtomicReference<Bucket>> buckets;
+    private final LongSupplier nanoClock;
+
+    public InMemoryRateLimitStore(long maxBuckets, Duration idleExpiry) {
+        this(maxBuckets, idleExpiry, System::nanoTime);
+    }
+
+    InMemoryRateLimitStore(long maxBuckets, Duration idleExpiry, LongSupplier nanoClock) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleExpiry)
+                .build();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Mono<RateLimitDecision> tryConsume(String key, int cost, long capacity, double refillPerSecond) {
+        long now = nanoClock.getAsLong();
+        AtomicReference<Bucket> ref = buckets.get(key, k -> new AtomicReference<>(new Bucket(capacity, now)));
+        while (true) {
+            Bucket current = ref.get();
+            double elapsedSeconds = Math.max(0, now - current.updatedAt()) / 1_000_000_000.0;
+            double available = Math.min(capacity, current.tokens() + elapsedSeconds * refillPerSecond);
+            if (available < cost) {
+                double secondsUntilRefilled = (cost - available) / refillPerSecond;
+                Duration retryAfter = Duration.ofMillis((long) Math.ceil(secondsUntilRefilled * 1000));
+                return Mono.just(RateLimitDecision.deny((long) available, retryAfter));
+            }
+            Bucket next = new Bucket(available - cost, Math.max(now, current.updatedAt()));
+            if (ref.compareAndSet(current, next)) {
+                return Mono.just(RateLimitDecision.allow((long) next.tokens()));
+            }
+        }
+    }
+
+    private record Bucket(double tokens, long updatedAt) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.gateway.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a bucket check: whether the request may proceed, the tokens left afterwards,
+ * and when enough tokens will have refilled if it may not.
+ */
+public record RateLimitDecision(boolean allowed, long remaining, Duration retryAfter) {
+
+    public static RateLimitDecision allow(long remaining) {
+        return new RateLimitDecision(true, remaining, Duration.ZERO);
+    }
+
+    public static RateLimitDecision deny(long remaining, Duration retryAfter) {
+        return new RateLimitDecision(false, remaining, retryAfter);
+    }
+}
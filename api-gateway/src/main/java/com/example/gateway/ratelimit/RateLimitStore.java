@@ -0,0 +1,15 @@
+package com.example.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where token buckets live. The default keeps them in this gateway's memory; a shared
+ * implementation (e.g. Redis) can be dropped in as a bean to enforce cluster-wide limits.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Take {@code cost} tokens from the bucket identified by {@code key}, creating it full if absent.
+     */
+    Mono<RateLimitDecision> tryConsume(String key, int cost, long capacity, double refillPerSecond);
+}
@@ -0,0 +1,60 @@
+package com.example.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Mints the short-lived, HMAC-signed identity tokens checked by the services'
+ * HeaderAuthenticationFilter. A token is reused for half its lifetime, so a caller
+ * signs at most one token per identity every few minutes.
+ */
+@Component
+public class InternalTokenSigner {
+
+    public static final String HEADER = "X-Auth-Token";
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Cache<String, String> minted;
+
+    public InternalTokenSigner(@Value("${internal-auth.secret}") String secret,
+                               @Value("${internal-auth.token-ttl:5m}") Duration ttl) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttl = ttl;
+        this.minted = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(ttl.dividedBy(2))
+                .build();
+    }
+
+    /**
+     * Token asserting the given user and comma-separated roles (e.g. "ROLE_ADMIN,ROLE_USER").
+     */
+    public String tokenFor(String user, String roles) {
+        return minted.get(user + "\n" + roles, this::sign);
+    }
+
+    private String sign(String claims) {
+        long expiresAt = Instant.now().plus(ttl).getEpochSecond();
+        String payload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((claims + "\n" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.gateway.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = new ResponseCache(1024 * 1024);
+
+    @Test
+    void testInvalidate_EvictsWrittenResourceAndItsParents() {
+        ResponseCache.Key product = key("/product-service/products/5");
+        ResponseCache.Key other = key("/product-service/products/6");
+        ResponseCache.Key listing = key("/product-service/products");
+        cache.put(product, response());
+        cache.put(other, response());
+        cache.put(listing, response());
+
+        cache.invalidate("/product-service/products/5/stock");
+
+        assertNull(cache.get(product));
+        assertNull(cache.get(listing));
+        assertNotNull(cache.get(other));
+    }
+
+    @Test
+    void testInvalidate_DoesNotEvictSiblingsSharingAPrefix() {
+        ResponseCache.Key product = key("/product-service/products/5");
+        cache.put(product, response());
+
+        cache.invalidate("/product-service/products/55");
+
+        assertNotNull(cache.get(product));
+    }
+
+    private static ResponseCache.Key key(String path) {
+        return new ResponseCache.Key("product-service", path, null, "");
+    }
+
+    private static CachedResponse response() {
+        return new CachedResponse(new HttpHeaders(), "{}".getBytes(), Duration.ofMinutes(1));
+    }
+}
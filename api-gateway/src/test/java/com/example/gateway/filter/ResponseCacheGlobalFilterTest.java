@@ -0,0 +1,98 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.cache.ResponseCache;
+import com.example.gateway.cache.ResponseCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheGlobalFilterTest {
+
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private final ResponseCacheGlobalFilter filter;
+
+    ResponseCacheGlobalFilterTest() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setPaths(List.of("/product-service/products/*"));
+        filter = new ResponseCacheGlobalFilter(new ResponseCache(1024 * 1024), properties);
+    }
+
+    @Test
+    void testCborAndJsonResponsesAreCachedSeparately() {
+        MockServerWebExchange cbor = get(CBOR);
+        MockServerWebExchange json = get(MediaType.APPLICATION_JSON);
+        MockServerWebExchange jsonAgain = get(MediaType.APPLICATION_JSON);
+
+        assertEquals(CBOR, cbor.getResponse().getHeaders().getContentType());
+        assertEquals(MediaType.APPLICATION_JSON, json.getResponse().getHeaders().getContentType());
+        assertEquals("{\"id\":5}", json.getResponse().getBodyAsString().block());
+        assertEquals("HIT", jsonAgain.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals(MediaType.APPLICATION_JSON, jsonAgain.getResponse().getHeaders().getContentType());
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    @Test
+    void testPrivateResponseIsNotSharedWithWaitingRequests() {
+        MockServerWebExchange follower = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/product-service/products/5").header("X-User", "bob"));
+        MockServerWebExchange leader = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/product-service/products/5").header("X-User", "alice"));
+        GatewayFilterChain privateDownstream = exchange -> {
+            if (downstreamCalls.incrementAndGet() == 1) {
+                // An identical request arrives while the first one is still downstream
+                filter.filter(follower, this::privateResponse).subscribe();
+            }
+            return privateResponse(exchange);
+        };
+
+        filter.filter(leader, privateDownstream).block();
+
+        assertEquals("alice", leader.getResponse().getBodyAsString().block());
+        assertEquals("bob", follower.getResponse().getBodyAsString().block());
+        assertNotEquals("SHARED", follower.getResponse().getHeaders().getFirst("X-Cache"));
+    }
+
+    private Mono<Void> privateResponse(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().set(HttpHeaders.CACHE_CONTROL, "private");
+        byte[] body = exchange.getRequest().getHeaders().getFirst("X-User").getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private MockServerWebExchange get(MediaType accept) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/product-service/products/5").accept(accept));
+        filter.filter(exchange, downstream()).block();
+        return exchange;
+    }
+
+    // Negotiates like the product service: CBOR when asked for, JSON otherwise
+    private GatewayFilterChain downstream() {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            boolean cbor = exchange.getRequest().getHeaders().getAccept().contains(CBOR);
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(cbor ? CBOR : MediaType.APPLICATION_JSON);
+            response.getHeaders().set(HttpHeaders.CACHE_CONTROL, "max-age=10, public");
+            byte[] body = (cbor ? "¡bid\u0005" : "{\"id\":5}").getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.gateway.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRateLimitStoreTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private InMemoryRateLimitStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new InMemoryRateLimitStore(100, Duration.ofMinutes(10), clock::get);
+    }
+
+    @Test
+    void testTryConsume_DeniesOnceBurstIsSpentWithRetryAfter() {
+        assertTrue(store.tryConsume("user|orders", 6, 10, 2).block().allowed());
+
+        RateLimitDecision denied = store.tryConsume("user|orders", 6, 10, 2).block();
+
+        assertFalse(denied.allowed());
+        assertEquals(4, denied.remaining());
+        assertEquals(Duration.ofSeconds(1), denied.retryAfter());
+    }
+
+    @Test
+    void testTryConsume_RefillsOverTime() {
+        assertTrue(store.tryConsume("user|orders", 10, 10, 2).block().allowed());
+        assertFalse(store.tryConsume("user|orders", 1, 10, 2).block().allowed());
+
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+
+        RateLimitDecision decision = store.tryConsume("user|orders", 6, 10, 2).block();
+        assertTrue(decision.allowed());
+        assertEquals(0, decision.remaining());
+    }
+
+    @Test
+    void testTryConsume_KeepsSeparateBucketsPerKey() {
+        assertTrue(store.tryConsume("alice|orders", 10, 10, 1).block().allowed());
+
+        assertTrue(store.tryConsume("bob|orders", 10, 10, 1).block().allowed());
+        assertTrue(store.tryConsume("alice|products", 10, 10, 1).block().allowed());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CachingReactiveAuthenticationManagerTest {
+
+    private ReactiveAuthenticationManager delegate;
+    private CachingReactiveAuthenticationManager manager;
+
+    @BeforeEach
+    void setup() {
+        delegate = mock(ReactiveAuthenticationManager.class);
+        manager = new CachingReactiveAuthenticationManager(delegate, Caffeine.newBuilder().maximumSize(100).build());
+    }
+
+    @Test
+    void testAuthenticate_VerifiesSameCredentialsOnlyOnce() {
+        Authentication verified = UsernamePasswordAuthenticationToken.authenticated("admin", null, List.of());
+        when(delegate.authenticate(any())).thenReturn(Mono.just(verified));
+
+        assertSame(verified, manager.authenticate(login("admin", "adminpass")).block());
+        assertSame(verified, manager.authenticate(login("admin", "adminpass")).block());
+
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    void testAuthenticate_DoesNotCacheFailuresOrOtherPasswords() {
+        Authentication verified = UsernamePasswordAuthenticationToken.authenticated("admin", null, List.of());
+        when(delegate.authenticate(any()))
+                .thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")))
+                .thenReturn(Mono.just(verified))
+                .thenReturn(Mono.error(new BadCredentialsException("Invalid Credentials")));
+
+        assertThrows(BadCredentialsException.class, () -> manager.authenticate(login("admin", "adminpass")).block());
+        assertSame(verified, manager.authenticate(login("admin", "adminpass")).block());
+        assertThrows(BadCredentialsException.class, () -> manager.authenticate(login("admin", "wrong")).block());
+
+        verify(delegate, times(3)).authenticate(any());
+    }
+
+    private static Authentication login(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+}
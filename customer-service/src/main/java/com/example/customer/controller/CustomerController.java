@@ -1,9 +1,21 @@
 package com.example.customer.controller;
 
 import com.example.customer.entity.Customer;
+import com.example.customer.exception.BadRequestException;
 import com.example.customer.service.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -11,19 +23,64 @@ import java.util.List;
 public class CustomerController {
 
     private final CustomerService service;
+    private final ObjectMapper objectMapper;
+    private final CacheControl itemCacheControl;
 
-    public CustomerController(CustomerService service) {
+    public CustomerController(CustomerService service, ObjectMapper objectMapper,
+                              @Value("${customer.http.item-max-age:10s}") Duration itemMaxAge) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.itemCacheControl = CacheControl.maxAge(itemMaxAge).cachePublic();
     }
 
+    // Keyset pagination: a full page carries a Link header (rel="next") with the afterId of the next one
     @GetMapping
-    public List<Customer> getAllCustomers() {
-        return service.getAllCustomers();
+    public ResponseEntity<List<Customer>> getAllCustomers(@RequestParam(defaultValue = "0") long afterId,
+                                                          @RequestParam(defaultValue = "100") int limit) {
+        List<Customer> page = service.getCustomersPage(afterId, limit);
+        if (page.size() < limit) {
+            return ResponseEntity.ok(page);
+        }
+        // Relative to the request URL, so it also resolves behind the gateway's path prefix
+        String next = "<?afterId=" + page.get(page.size() - 1).getId() + "&limit=" + limit + ">; rel=\"next\"";
+        return ResponseEntity.ok().header(HttpHeaders.LINK, next).body(page);
     }
 
+    // Every customer as newline-delimited JSON, streamed straight from a database cursor
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        StreamingResponseBody body = out -> service.exportCustomers(entity -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(entity));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Served as JSON by default, or as CBOR for internal callers sending Accept: application/cbor
+    @GetMapping("/batch")
+    public List<Customer> getCustomersByIds(@RequestParam List<Long> ids) {
+        return service.getCustomersByIds(ids);
+    }
+
+    // Same as GET /batch, for id sets too large for a query string
+    @PostMapping("/batch")
+    public List<Customer> getCustomersByIdsInBody(@RequestBody List<Long> ids) {
+        return service.getCustomersByIds(ids);
+    }
+
+    // Single customers may be cached briefly by the gateway (and clients); writes through the gateway evict them.
+    // The ETag is the entity version, so a matching If-None-Match gets a bodyless 304.
     @GetMapping("/{id}")
-    public Customer getCustomerById(@PathVariable Long id) {
-        return service.getCustomerById(id);
+    public ResponseEntity<Customer> getCustomerById(@PathVariable Long id, WebRequest request) {
+        Customer customer = service.getCustomerById(id);
+        if (request.checkNotModified(etag(customer.getVersion()))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(itemCacheControl).body(customer);
     }
 
     @PostMapping
@@ -31,13 +88,33 @@ public class CustomerController {
         return service.createCustomer(customer);
     }
 
+    // With If-Match, the update only applies if the customer is still at that version (412 otherwise)
     @PutMapping("/{id}")
-    public Customer updateCustomer(@PathVariable Long id, @RequestBody Customer customer) {
-        return service.updateCustomer(id, customer);
+    public ResponseEntity<Customer> updateCustomer(@PathVariable Long id, @RequestBody Customer customer,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Customer saved = service.updateCustomer(id, customer, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(saved.getVersion())).body(saved);
     }
 
     @DeleteMapping("/{id}")
     public void deleteCustomer(@PathVariable Long id) {
         service.deleteCustomer(id);
     }
+
+    // Strong ETag of an entity version, e.g. "3"
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // The version a PUT's If-Match asks for; null when absent or "*"
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(ifMatch.trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("If-Match must be a single ETag returned by this service");
+        }
+    }
 }
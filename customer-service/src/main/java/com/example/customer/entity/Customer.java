@@ -16,6 +16,11 @@ public class Customer {
 
     private String phone; // ✅ Added new field
 
+    // Bumped on every update; exposed to clients as the ETag
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     // ----- Constructors -----
     public Customer() {}
     
@@ -41,6 +46,14 @@ public class Customer {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
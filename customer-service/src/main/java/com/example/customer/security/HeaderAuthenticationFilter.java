@@ -4,43 +4,39 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Authenticates requests from the signed X-Auth-Token minted by the gateway.
+ * Requests without a valid token stay anonymous and are rejected by the security rules.
+ */
 @Component
 public class HeaderAuthenticationFilter extends OncePerRequestFilter {
 
+    private final InternalTokenVerifier tokenVerifier;
+
+    public HeaderAuthenticationFilter(InternalTokenVerifier tokenVerifier) {
+        this.tokenVerifier = tokenVerifier;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
-        String username = request.getHeader("X-Auth-User");
-        String rolesHeader = request.getHeader("X-Auth-Roles");
+        String token = request.getHeader("X-Auth-Token");
 
-        // If headers exist and user isn’t already authenticated
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            List<SimpleGrantedAuthority> authorities = List.of();
-
-            if (rolesHeader != null && !rolesHeader.isBlank()) {
-                authorities = Arrays.stream(rolesHeader.split(","))
-                        .map(String::trim)
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Authentication auth = tokenVerifier.verify(token);
+            if (auth != null) {
+                SecurityContextHolder.getContext().setAuthentication(auth);
             }
-
-            UsernamePasswordAuthenticationToken auth =
-                    new UsernamePasswordAuthenticationToken(username, null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(auth);
         }
 
         filterChain.doFilter(request, response);
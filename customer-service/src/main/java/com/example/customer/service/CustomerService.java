@@ -2,23 +2,54 @@ package com.example.customer.service;
 
 import com.example.customer.entity.Customer;
 import com.example.customer.exception.BadRequestException;
+import com.example.customer.exception.PreconditionFailedException;
 import com.example.customer.exception.CustomerNotFoundException;
 import com.example.customer.repository.CustomerRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class CustomerService {
 
+    // Upper bound on ids accepted by a single batch lookup
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final CustomerRepository repository;
+    private final EntityManager entityManager;
+    private final OrderCacheNotifier orderCache;
 
-    public CustomerService(CustomerRepository repository) {
+    public CustomerService(CustomerRepository repository, EntityManager entityManager, OrderCacheNotifier orderCache) {
         this.repository = repository;
+        this.entityManager = entityManager;
+        this.orderCache = orderCache;
     }
 
-    public List<Customer> getAllCustomers() {
-        return repository.findAll();
+    // Keyset page: up to `limit` customers with an id above `afterId`
+    public List<Customer> getCustomersPage(long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return repository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+    }
+
+    // Every customer in id order, read through a database cursor and detached once consumed
+    @Transactional(readOnly = true)
+    public void exportCustomers(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = repository.streamAll()) {
+            customers.forEach(entity -> {
+                consumer.accept(entity);
+                entityManager.detach(entity);
+            });
+        }
     }
 
     public Customer getCustomerById(Long id) {
@@ -26,6 +57,16 @@ public class CustomerService {
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with id " + id));
     }
 
+    public List<Customer> getCustomersByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Cannot fetch more than " + MAX_BATCH_SIZE + " customers at once");
+        }
+        return repository.findAllById(ids);
+    }
+
     // ✅ Renamed method (was addCustomer)
     public Customer createCustomer(Customer customer) {
         validateCustomer(customer);
@@ -33,16 +74,30 @@ public class CustomerService {
     }
 
     public Customer updateCustomer(Long id, Customer updated) {
+        return updateCustomer(id, updated, null);
+    }
+
+    // Only applies if the customer is still at expectedVersion (when given); @Version catches races on save
+    public Customer updateCustomer(Long id, Customer updated, Long expectedVersion) {
         validateCustomer(updated);
 
         Customer existing = repository.findById(id)
                 .orElseThrow(() -> new CustomerNotFoundException("Customer not found with id " + id));
+        if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Customer " + id + " is at version " + existing.getVersion()
+                    + ", not " + expectedVersion);
+        }
 
+        boolean renamed = !Objects.equals(existing.getName(), updated.getName());
         existing.setName(updated.getName());
         existing.setEmail(updated.getEmail());
         existing.setPhone(updated.getPhone());
 
-        return repository.save(existing);
+        Customer saved = repository.save(existing);
+        if (renamed) {
+            orderCache.customerChanged(id);
+        }
+        return saved;
     }
 
     public void deleteCustomer(Long id) {
@@ -50,6 +105,7 @@ public class CustomerService {
             throw new CustomerNotFoundException("Cannot delete — customer not found with id " + id);
         }
         repository.deleteById(id);
+        orderCache.customerChanged(id);
     }
 
     private void validateCustomer(Customer customer) {
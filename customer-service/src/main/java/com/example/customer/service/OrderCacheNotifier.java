@@ -0,0 +1,96 @@
+package com.example.customer.service;
+
+import com.example.customer.security.InternalTokenSigner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Tells every order-service instance to drop its cached name for a customer once a rename or
+ * delete commits, so order details pick up the change right away instead of after the near
+ * cache's TTL. Instances are looked up in Eureka, since a call through the gateway would reach
+ * only one of them. Calls are fire-and-forget: an instance that misses one catches up at the TTL.
+ */
+@Component
+public class OrderCacheNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderCacheNotifier.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final String serviceId;
+    private final Executor executor;
+
+    @Autowired
+    public OrderCacheNotifier(DiscoveryClient discoveryClient, RestTemplateBuilder builder, InternalTokenSigner tokenSigner,
+                              @Value("${customer.order-cache.service-id:order-service}") String serviceId,
+                              @Value("${customer.order-cache.timeout:2s}") Duration timeout,
+                              @Value("${customer.internal-auth.user:customer-service}") String user,
+                              @Value("${customer.internal-auth.roles:ROLE_ADMIN}") String roles) {
+        this(discoveryClient,
+                builder.additionalInterceptors((request, body, execution) -> { // ✅ identify ourselves to order-service
+                            request.getHeaders().set(InternalTokenSigner.HEADER, tokenSigner.tokenFor(user, roles));
+                            return execution.execute(request, body);
+                        })
+                        .setConnectTimeout(timeout)
+                        .setReadTimeout(timeout)
+                        .build(),
+                serviceId,
+                virtualThreads());
+    }
+
+    OrderCacheNotifier(DiscoveryClient discoveryClient, RestTemplate restTemplate, String serviceId, Executor executor) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.serviceId = serviceId;
+        this.executor = executor;
+    }
+
+    /**
+     * Evict the customer's cached name on every order-service instance, after the current transaction commits.
+     */
+    public void customerChanged(Long customerId) {
+        String path = "/cache/customers/" + customerId;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictEverywhere(path);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictEverywhere(path);
+            }
+        });
+    }
+
+    private void evictEverywhere(String path) {
+        executor.execute(() -> {
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                try {
+                    restTemplate.delete(instance.getUri() + path);
+                } catch (RestClientException e) {
+                    logger.warn("Could not evict {} on {}, it expires with the TTL: {}", path, instance.getUri(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static Executor virtualThreads() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("order-cache-evict-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
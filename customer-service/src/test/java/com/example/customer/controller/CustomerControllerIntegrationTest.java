@@ -45,7 +45,17 @@ class CustomerControllerIntegrationTest {
         mockMvc.perform(get("/customers"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].name", is("Alice")));
+                .andExpect(jsonPath("$[0].name", is("Alice")))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    //  Test: A full page links to the next one
+    @Test
+    void testGetAllCustomers_FullPageLinksToTheNext() throws Exception {
+        mockMvc.perform(get("/customers").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string("Link", matchesPattern("<\\?afterId=\\d+&limit=1>; rel=\"next\"")));
     }
 
     //  Test: Get single customer by ID
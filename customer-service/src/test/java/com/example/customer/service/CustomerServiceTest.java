@@ -3,14 +3,18 @@ package com.example.customer.service;
 import com.example.customer.entity.Customer;
 import com.example.customer.exception.CustomerNotFoundException;
 import com.example.customer.repository.CustomerRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +28,12 @@ class CustomerServiceTest {
     @Mock
     private CustomerRepository repository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private OrderCacheNotifier orderCache;
+
     @InjectMocks
     private CustomerService service;
 
@@ -33,20 +43,36 @@ class CustomerServiceTest {
     }
 
     // =========================================================
-    // TEST: Get all customers
+    // TEST: Get one keyset page of customers
     // =========================================================
     @Test
-    void testGetAllCustomers() {
-        when(repository.findAll()).thenReturn(List.of(
+    void testGetCustomersPage() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100))).thenReturn(List.of(
                 new Customer(1L, "Alice", "alice@example.com", "9876543210"),
                 new Customer(2L, "Bob", "bob@example.com", "9123456780")
         ));
 
-        List<Customer> customers = service.getAllCustomers();
+        List<Customer> customers = service.getCustomersPage(0L, 100);
 
         assertEquals(2, customers.size());
         assertEquals("Alice", customers.get(0).getName());
-        verify(repository, times(1)).findAll();
+        verify(repository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100));
+        verify(repository, never()).findAll();
+    }
+
+    // =========================================================
+    // TEST: Export streams every customer and detaches it
+    // =========================================================
+    @Test
+    void testExportCustomers() {
+        Customer alice = new Customer(1L, "Alice", "alice@example.com", "9876543210");
+        when(repository.streamAll()).thenReturn(Stream.of(alice));
+
+        List<Customer> exported = new ArrayList<>();
+        service.exportCustomers(exported::add);
+
+        assertEquals(List.of(alice), exported);
+        verify(entityManager).detach(alice);
     }
 
     // =========================================================
@@ -78,6 +104,23 @@ class CustomerServiceTest {
         verify(repository, never()).save(any());
     }
 
+    // =========================================================
+    // TEST: Get customers by IDs (batch)
+    // =========================================================
+    @Test
+    void testGetCustomersByIds() {
+        List<Long> ids = List.of(1L, 2L);
+        when(repository.findAllById(ids)).thenReturn(List.of(
+                new Customer(1L, "Alice", "alice@example.com", "9876543210"),
+                new Customer(2L, "Bob", "bob@example.com", "9123456780")
+        ));
+
+        List<Customer> customers = service.getCustomersByIds(ids);
+
+        assertEquals(2, customers.size());
+        verify(repository, times(1)).findAllById(ids);
+    }
+
     // =========================================================
     // TEST: Create customer
     // =========================================================
@@ -107,6 +150,23 @@ class CustomerServiceTest {
         service.deleteCustomer(1L);
 
         verify(repository, times(1)).deleteById(1L);
+        verify(orderCache).customerChanged(1L);
+    }
+
+    // =========================================================
+    // TEST: Rename evicts order-service's cached name
+    // =========================================================
+    @Test
+    void testUpdateCustomer_RenameEvictsOrderCache() {
+        Customer existing = new Customer(1L, "John", "john@example.com", "9000012345");
+        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        when(repository.save(existing)).thenReturn(existing);
+
+        service.updateCustomer(1L, new Customer("John", "john@new.example.com", "9000012345"));
+        verify(orderCache, never()).customerChanged(any());
+
+        service.updateCustomer(1L, new Customer("Johnny", "john@new.example.com", "9000012345"));
+        verify(orderCache).customerChanged(1L);
     }
 
     // =========================================================
@@ -0,0 +1,99 @@
+package com.example.order.client;
+
+import com.example.order.dto.CustomerSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+/**
+ * Thin client for the Customer Service.
+ * Name lookups go through the batch endpoint so callers pay one HTTP hop per chunk of ids,
+ * and are served from a near cache whenever possible.
+ * Lookups ask for CBOR and read it into CustomerSummary, falling back to JSON if the instance lacks CBOR.
+ */
+@Component
+public class CustomerClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerClient.class);
+
+    // Kept well below customer-service's own batch limit
+    static final int BATCH_SIZE = 500;
+
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final Cache<Long, String> nameCache;
+    private final String baseUrl;
+    private final SingleFlight<Long, String> nameLookups = new SingleFlight<>();
+
+    public CustomerClient(RestTemplate restTemplate,
+                          @Qualifier("customerServiceCircuitBreaker") CircuitBreaker circuitBreaker,
+                          @Qualifier("customerNameCache") Cache<Long, String> nameCache,
+                          @Value("${services.customer-service.url:http://customer-service}") String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.nameCache = nameCache;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Resolve customer names for the given ids, fetching only those missing from the cache.
+     * Ids another request is already fetching are waited for rather than fetched again.
+     * Ids that are unknown, or whose chunk could not be fetched, are absent from the result.
+     */
+    public Map<Long, String> getCustomerNames(Collection<Long> customerIds) {
+        Map<Long, String> names = new HashMap<>(nameCache.getAllPresent(customerIds));
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(customerIds));
+        ids.removeAll(names.keySet());
+
+        names.putAll(nameLookups.load(ids, this::fetchCustomerNames));
+        return names;
+    }
+
+    /**
+     * Fetch names from customer-service in chunks, caching what comes back.
+     */
+    private Map<Long, String> fetchCustomerNames(List<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            RequestEntity<List<Long>> request = RequestEntity.post(baseUrl + "/customers/batch")
+                    .accept(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON)
+                    .body(chunk);
+            CustomerSummary[] customers = circuitBreaker.run(
+                    () -> restTemplate.exchange(request, CustomerSummary[].class).getBody(),
+                    e -> {
+                        // Also covers an open breaker, a full bulkhead and a timed-out call
+                        logger.warn("Customer lookup failed for {} ids: {}", chunk.size(), e.getMessage());
+                        return null;
+                    });
+            if (customers == null) continue;
+            for (CustomerSummary customer : customers) {
+                if (customer.id() != null && customer.name() != null) {
+                    names.put(customer.id(), customer.name());
+                    nameCache.put(customer.id(), customer.name());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Drop a cached name, e.g. after the customer was renamed or deleted.
+     */
+    public void evictCustomerName(Long id) {
+        nameCache.invalidate(id);
+    }
+
+    public void evictAllCustomerNames() {
+        nameCache.invalidateAll();
+    }
+}
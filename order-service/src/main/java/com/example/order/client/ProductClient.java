@@ -0,0 +1,146 @@
+package com.example.order.client;
+
+import com.example.order.dto.ProductSummary;
+import com.example.order.dto.StockEvent;
+import com.example.order.dto.StockEventResult;
+import com.example.order.exception.BadRequestException;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+/**
+ * Thin client for the Product Service.
+ * Name lookups go through the batch endpoint so callers pay one HTTP hop per chunk of ids,
+ * and are served from a near cache whenever possible.
+ * Lookups ask for CBOR and read it into ProductSummary, falling back to JSON if the instance lacks CBOR.
+ */
+@Component
+public class ProductClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductClient.class);
+
+    // Kept well below product-service's own batch limit
+    static final int BATCH_SIZE = 500;
+
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final Cache<Long, String> nameCache;
+    private final String baseUrl;
+    private final SingleFlight<Long, String> nameLookups = new SingleFlight<>();
+
+    public ProductClient(RestTemplate restTemplate,
+                         @Qualifier("productServiceCircuitBreaker") CircuitBreaker circuitBreaker,
+                         @Qualifier("productNameCache") Cache<Long, String> nameCache,
+                         @Value("${services.product-service.url:http://product-service}") String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.nameCache = nameCache;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Resolve product names for the given ids, fetching only those missing from the cache.
+     * Ids another request is already fetching are waited for rather than fetched again.
+     * Ids that are unknown, or whose chunk could not be fetched, are absent from the result.
+     */
+    public Map<Long, String> getProductNames(Collection<Long> productIds) {
+        Map<Long, String> names = new HashMap<>(nameCache.getAllPresent(productIds));
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        ids.removeAll(names.keySet());
+
+        names.putAll(nameLookups.load(ids, this::fetchProductNames));
+        return names;
+    }
+
+    /**
+     * Fetch names from product-service in chunks, caching what comes back.
+     */
+    private Map<Long, String> fetchProductNames(List<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            RequestEntity<List<Long>> request = RequestEntity.post(baseUrl + "/products/batch")
+                    .accept(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON)
+                    .body(chunk);
+            ProductSummary[] products = circuitBreaker.run(
+                    () -> restTemplate.exchange(request, ProductSummary[].class).getBody(),
+                    e -> {
+                        // Also covers an open breaker, a full bulkhead and a timed-out call
+                        logger.warn("Product lookup failed for {} ids: {}", chunk.size(), e.getMessage());
+                        return null;
+                    });
+            if (products == null) continue;
+            for (ProductSummary product : products) {
+                if (product.id() != null && product.name() != null) {
+                    names.put(product.id(), product.name());
+                    nameCache.put(product.id(), product.name());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Drop a cached name, e.g. after the product was renamed or deleted.
+     */
+    public void evictProductName(Long id) {
+        nameCache.invalidate(id);
+    }
+
+    public void evictAllProductNames() {
+        nameCache.invalidateAll();
+    }
+
+    /**
+     * Reserve stock for every product in the map in one all-or-nothing call.
+     * Safe to repeat: product-service applies a given {@code idempotencyKey} only once.
+     */
+    public void reserveStock(Map<Long, Integer> quantities, String idempotencyKey) {
+        postStock("/products/stock/reserve", quantities, idempotencyKey);
+    }
+
+    /**
+     * Return previously reserved stock for every product in the map in one call.
+     * Safe to repeat: product-service applies a given {@code idempotencyKey} only once.
+     */
+    public void releaseStock(Map<Long, Integer> quantities, String idempotencyKey) {
+        postStock("/products/stock/release", quantities, idempotencyKey);
+    }
+
+    /**
+     * Deliver outbox stock events in one call; product-service answers for each event it handled.
+     * Any failure is thrown, so the relay keeps the events and retries them.
+     */
+    public List<StockEventResult> publishStockEvents(List<StockEvent> events) {
+        StockEventResult[] results = circuitBreaker.run(
+                () -> restTemplate.postForObject(baseUrl + "/products/stock/events", events, StockEventResult[].class),
+                e -> {
+                    throw new RuntimeException("Failed to publish " + events.size() + " stock events: " + e.getMessage(), e);
+                });
+        return results == null ? List.of() : Arrays.asList(results);
+    }
+
+    private void postStock(String path, Map<Long, Integer> quantities, String idempotencyKey) {
+        RequestEntity<Map<Long, Integer>> entity = RequestEntity.post(baseUrl + path)
+                .header("Idempotency-Key", idempotencyKey)
+                .body(quantities);
+        circuitBreaker.run(() -> restTemplate.exchange(entity, Void.class), e -> {
+            if (e instanceof HttpClientErrorException clientError) {
+                // 4xx means the request itself was rejected, e.g. not enough stock
+                throw new BadRequestException("Stock update rejected for products " + quantities.keySet()
+                        + ": " + clientError.getResponseBodyAsString());
+            }
+            throw new RuntimeException("Failed to update stock for products " + quantities.keySet() + ": " + e.getMessage());
+        });
+    }
+}
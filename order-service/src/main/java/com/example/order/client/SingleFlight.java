@@ -0,0 +1,58 @@
+package com.example.order.client;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent lookups of the same keys: a key already being fetched by another
+ * thread is waited for instead of fetched again, so N simultaneous requests for a hot id
+ * cause one downstream call. Keys the loader does not return resolve to absent for everyone.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Load the given keys, fetching with {@code loader} only those nobody else is fetching.
+     */
+    Map<K, V> load(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> joined = new HashMap<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> theirs = inFlight.putIfAbsent(key, mine);
+            if (theirs == null) {
+                owned.put(key, mine);
+            } else {
+                joined.put(key, theirs);
+            }
+        }
+
+        Map<K, V> result = new HashMap<>();
+        if (!owned.isEmpty()) {
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(owned.keySet()));
+                owned.forEach((key, future) -> {
+                    V value = loaded.get(key);
+                    future.complete(value);
+                    if (value != null) result.put(key, value);
+                });
+            } finally {
+                // Never leave waiters hanging, even if the loader blew up
+                owned.forEach((key, future) -> {
+                    future.complete(null);
+                    inFlight.remove(key, future);
+                });
+            }
+        }
+        // Our own keys are done before we wait on anyone else's, so waits cannot form a cycle
+        joined.forEach((key, future) -> {
+            V value = future.join();
+            if (value != null) result.put(key, value);
+        });
+        return result;
+    }
+}
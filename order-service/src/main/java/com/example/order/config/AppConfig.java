@@ -1,12 +1,24 @@
 package com.example.order.config;
 
+import com.example.order.security.InternalTokenSigner;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
+@LoadBalancerClients(defaultConfiguration = LoadBalancerConfig.class)
 public class AppConfig {
 
 //    @Bean
@@ -18,13 +30,83 @@ public class AppConfig {
     
    
 
+    /**
+     * Calls customer-service/product-service instances directly, resolved through Eureka,
+     * instead of hairpinning through the gateway. The gateway's signed identity token is
+     * therefore minted by us, as this service's own identity.
+     */
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+    @LoadBalanced
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient downstreamHttpClient,
+                                     InternalTokenSigner tokenSigner,
+                                     @Value("${order.internal-auth.user:order-service}") String user,
+                                     @Value("${order.internal-auth.roles:ROLE_ADMIN,ROLE_USER}") String roles) {
         return builder
-                .basicAuthentication("admin", "adminpass") // ✅ send credentials for internal calls
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(downstreamHttpClient))
+                .additionalInterceptors((request, body, execution) -> { // ✅ identify ourselves for internal calls
+                    request.getHeaders().set(InternalTokenSigner.HEADER, tokenSigner.tokenFor(user, roles));
+                    return execution.execute(request, body);
+                })
                 .setConnectTimeout(Duration.ofSeconds(3))
                 .setReadTimeout(Duration.ofSeconds(5))
                 .build();
     }
 
+    /**
+     * Executor used to fan out customer/product lookups concurrently while enriching orders.
+     * When saturated it rejects the lookup, which then falls back to unknown names: running it on the
+     * request thread instead would escape the enrichment deadline.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor enrichmentExecutor(@Value("${order.enrichment.pool-size:16}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 8);
+        executor.setThreadNamePrefix("enrichment-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * With spring.threads.virtual.enabled=true every lookup gets its own virtual thread,
+     * so blocked downstream calls no longer tie up a pool.
+     */
+    @Bean(name = "enrichmentExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualEnrichmentExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("enrichment-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    /**
+     * Runs sagas and their steps. Never queues and rejects when all threads are busy: a new saga is then
+     * left to the stalled-saga recovery rather than run on the committing request thread, and a saga
+     * runs a rejected step itself, so one waiting on its own steps cannot starve the pool.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor sagaExecutor(@Value("${order.saga.pool-size:16}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("saga-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * With virtual threads every saga step gets its own thread.
+     */
+    @Bean(name = "sagaExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualSagaExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("saga-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
 }
@@ -0,0 +1,44 @@
+package com.example.order.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * In-process near caches for customer and product names used to enrich orders.
+ * Both are bounded by size and TTL, and publish hit/miss/eviction stats as
+ * "cache.*" metrics on /actuator/metrics. Renames and deletes evict entries through
+ * CacheController; the TTL bounds staleness when such a call is missed.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public Cache<Long, String> customerNameCache(MeterRegistry registry,
+                                                 @Value("${order.cache.customers.max-size:10000}") long maxSize,
+                                                 @Value("${order.cache.customers.ttl:10m}") Duration ttl) {
+        return monitored(registry, "customerNames", maxSize, ttl);
+    }
+
+    @Bean
+    public Cache<Long, String> productNameCache(MeterRegistry registry,
+                                                @Value("${order.cache.products.max-size:10000}") long maxSize,
+                                                @Value("${order.cache.products.ttl:10m}") Duration ttl) {
+        return monitored(registry, "productNames", maxSize, ttl);
+    }
+
+    private Cache<Long, String> monitored(MeterRegistry registry, String name, long maxSize, Duration ttl) {
+        Cache<Long, String> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.order.config;
+
+import com.example.order.loadbalancer.LeastOutstandingRequestsLoadBalancer;
+import com.example.order.loadbalancer.OutstandingRequestTracker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.RandomLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Per-service load balancer used for direct calls to customer-service and product-service.
+ * Selected by order.loadbalancer.strategy: round-robin (default), random, least-outstanding
+ * or zone-aware (round-robin over instances in our own zone, falling back to all instances).
+ *
+ * Registered through @LoadBalancerClients rather than component scanning, so Spring Cloud
+ * creates one instance of these beans per downstream service.
+ */
+public class LoadBalancerConfig {
+
+    @Bean
+    public ServiceInstanceListSupplier serviceInstanceListSupplier(
+            ConfigurableApplicationContext context,
+            @Value("${order.loadbalancer.strategy:round-robin}") String strategy) {
+        ServiceInstanceListSupplier.ServiceInstanceListSupplierBuilder builder =
+                ServiceInstanceListSupplier.builder().withBlockingDiscoveryClient();
+        if ("zone-aware".equals(strategy)) {
+            builder = builder.withZonePreference();
+        }
+        return builder.withCaching().build(context);
+    }
+
+    @Bean
+    public OutstandingRequestTracker outstandingRequestTracker() {
+        return new OutstandingRequestTracker();
+    }
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory clientFactory,
+            OutstandingRequestTracker tracker,
+            @Value("${order.loadbalancer.strategy:round-robin}") String strategy) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> suppliers =
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        return switch (strategy) {
+            case "round-robin", "zone-aware" -> new RoundRobinLoadBalancer(suppliers, serviceId);
+            case "random" -> new RandomLoadBalancer(suppliers, serviceId);
+            case "least-outstanding" -> new LeastOutstandingRequestsLoadBalancer(suppliers, tracker, serviceId);
+            default -> throw new IllegalArgumentException("Unknown order.loadbalancer.strategy: " + strategy);
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.order.config;
+
+import com.example.order.entity.OrderEvent;
+import com.example.order.repository.OrderEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the outbox backlog.
+ */
+@Configuration
+public class OutboxConfig {
+
+    /**
+     * Events written but not yet delivered to product-service; a growing value means the relay is falling behind.
+     */
+    @Bean
+    public Gauge outboxPendingGauge(MeterRegistry registry, OrderEventRepository repository) {
+        return Gauge.builder("order.outbox.pending", repository, r -> r.countByStatus(OrderEvent.Status.PENDING))
+                .description("Order events waiting to be relayed to product-service")
+                .register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.order.config;
+
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One Resilience4j circuit breaker (with semaphore bulkhead and time limiter) per downstream
+ * service, so a slow or failing product-service cannot hold order-service's threads hostage.
+ * Thresholds live under resilience4j.* in application.properties; breaker state is published
+ * as "resilience4j.*" metrics on /actuator/metrics.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker customerServiceCircuitBreaker(CircuitBreakerFactory<?, ?> circuitBreakerFactory) {
+        return circuitBreakerFactory.create("customer-service");
+    }
+
+    @Bean
+    public CircuitBreaker productServiceCircuitBreaker(CircuitBreakerFactory<?, ?> circuitBreakerFactory) {
+        return circuitBreakerFactory.create("product-service");
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.order.config;
 
 import com.example.order.security.HeaderAuthenticationFilter;
+import com.example.order.security.InternalTokenVerifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,10 +11,10 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, InternalTokenVerifier tokenVerifier) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
-            .addFilterBefore(new HeaderAuthenticationFilter(),
+            .addFilterBefore(new HeaderAuthenticationFilter(tokenVerifier),
                     org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(auth -> auth
                 // ✅ USER can create and view orders
@@ -22,6 +23,9 @@ public class SecurityConfig {
                 // ✅ ADMIN can delete or update any order
                 .requestMatchers("/orders/delete/**", "/orders/update/**").hasRole("ADMIN")
 
+                // ✅ Only ADMIN can invalidate the near caches
+                .requestMatchers("/cache/**").hasRole("ADMIN")
+
                 // everything else requires authentication
                 .anyRequest().authenticated()
             )
@@ -0,0 +1,39 @@
+package com.example.order.controller;
+
+import com.example.order.client.CustomerClient;
+import com.example.order.client.ProductClient;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Invalidation hooks for the customer/product name near caches.
+ * customer-service and product-service call these on every order-service instance
+ * when a customer or product is renamed or deleted, so the TTL is only a fallback.
+ */
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    private final CustomerClient customerClient;
+    private final ProductClient productClient;
+
+    public CacheController(CustomerClient customerClient, ProductClient productClient) {
+        this.customerClient = customerClient;
+        this.productClient = productClient;
+    }
+
+    @DeleteMapping("/customers/{id}")
+    public void evictCustomer(@PathVariable Long id) {
+        customerClient.evictCustomerName(id);
+    }
+
+    @DeleteMapping("/products/{id}")
+    public void evictProduct(@PathVariable Long id) {
+        productClient.evictProductName(id);
+    }
+
+    @DeleteMapping
+    public void evictAll() {
+        customerClient.evictAllCustomerNames();
+        productClient.evictAllProductNames();
+    }
+}
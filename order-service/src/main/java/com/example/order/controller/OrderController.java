@@ -2,9 +2,19 @@ package com.example.order.controller;
 
 import com.example.order.dto.OrderDetailResponse;
 import com.example.order.entity.Order;
+import com.example.order.exception.BadRequestException;
+import com.example.order.service.IdempotencyService;
 import com.example.order.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -12,33 +22,105 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService service;
+    private final IdempotencyService idempotency;
+    private final ObjectMapper objectMapper;
 
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, IdempotencyService idempotency, ObjectMapper objectMapper) {
         this.service = service;
+        this.idempotency = idempotency;
+        this.objectMapper = objectMapper;
     }
 
+    // Keyset pagination: pass the last orderId of a page as afterId to get the next one
     @GetMapping
-    public List<OrderDetailResponse> getAllOrders() {
-        return service.getAllOrders();
+    public List<OrderDetailResponse> getAllOrders(@RequestParam(defaultValue = "0") long afterId,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        return service.getOrdersPage(afterId, limit);
     }
 
+    // Every order as newline-delimited JSON, fetched and enriched batchSize orders at a time
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrders(@RequestParam(defaultValue = "500") int batchSize) {
+        // Validate up front: once streaming starts the status code can no longer change
+        if (batchSize < 1 || batchSize > OrderService.MAX_PAGE_SIZE) {
+            throw new BadRequestException("Batch size must be between 1 and " + OrderService.MAX_PAGE_SIZE);
+        }
+        StreamingResponseBody body = out -> service.forEachOrderBatch(batchSize, batch -> {
+            try {
+                for (OrderDetailResponse order : batch) {
+                    out.write(objectMapper.writeValueAsBytes(order));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Weak ETag of the order's version. Revalidation checks just the version, skipping the
+    // customer/product enrichment; renamed customers/products alone do not change it, so the
+    // body is only equivalent, not byte-identical, for a given ETag.
     @GetMapping("/{id}")
-    public OrderDetailResponse getOrderById(@PathVariable Long id) {
-        return service.getOrderById(id);
+    public ResponseEntity<OrderDetailResponse> getOrderById(@PathVariable Long id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(weakEtag(service.getOrderVersion(id)))) {
+            return null;
+        }
+        OrderDetailResponse order = service.getOrderById(id);
+        return ResponseEntity.ok().eTag(weakEtag(order.getVersion())).body(order);
     }
 
+    // Retries carrying the same Idempotency-Key get the originally created order back instead of a duplicate
     @PostMapping
-    public Order createOrder(@RequestBody Order order) {
-        return service.createOrder(order);
+    public ResponseEntity<Order> createOrder(@RequestBody Order order,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        IdempotencyService.Result<Order> result =
+                idempotency.execute("order-create", idempotencyKey, order, Order.class, () -> service.createOrder(order));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.replayed()) {
+            response.header(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return response.body(result.response());
     }
 
+    // With If-Match, the update only applies if the order is still at that version (412 otherwise)
     @PutMapping("/{id}")
-    public Order updateOrder(@PathVariable Long id, @RequestBody Order order) {
-        return service.updateOrder(id, order);
+    public ResponseEntity<Order> updateOrder(@PathVariable Long id, @RequestBody Order order,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Order saved = service.updateOrder(id, order, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(saved.getVersion())).body(saved);
     }
 
     @DeleteMapping("/{id}")
     public void deleteOrder(@PathVariable Long id) {
         service.deleteOrder(id);
     }
+
+    // Strong ETag of an entity version, e.g. "3"
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Weak ETag of an entity version, e.g. W/"3", for bodies enriched with data the version does not cover
+    private static String weakEtag(long version) {
+        return "W/" + etag(version);
+    }
+
+    // The version a PUT's If-Match asks for (from a strong or weak ETag); null when absent or "*"
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        if (etag.startsWith("W/")) {
+            etag = etag.substring(2);
+        }
+        try {
+            return Long.parseLong(etag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("If-Match must be a single ETag returned by this service");
+        }
+    }
 }
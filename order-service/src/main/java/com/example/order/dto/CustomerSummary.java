@@ -0,0 +1,11 @@
+package com.example.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The only fields of a customer-service Customer that this service reads.
+ * Everything else in the payload is skipped without being materialized.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CustomerSummary(Long id, String name) {
+}
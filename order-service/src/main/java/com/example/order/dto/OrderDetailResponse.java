@@ -4,11 +4,15 @@ import java.util.List;
 
 public class OrderDetailResponse {
     private Long orderId;
+    private long version;
+    private String status;
     private String customerName;
     private List<ProductDetail> products;
 
-    public OrderDetailResponse(Long orderId, String customerName, List<ProductDetail> products) {
+    public OrderDetailResponse(Long orderId, long version, String status, String customerName, List<ProductDetail> products) {
         this.orderId = orderId;
+        this.version = version;
+        this.status = status;
         this.customerName = customerName;
         this.products = products;
     }
@@ -16,6 +20,12 @@ public class OrderDetailResponse {
     public Long getOrderId() { return orderId; }
     public void setOrderId(Long orderId) { this.orderId = orderId; }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
     public String getCustomerName() { return customerName; }
     public void setCustomerName(String customerName) { this.customerName = customerName; }
 
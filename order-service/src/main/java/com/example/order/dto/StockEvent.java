@@ -0,0 +1,10 @@
+package com.example.order.dto;
+
+import java.util.Map;
+
+/**
+ * Wire form of an outbox {@link com.example.order.entity.OrderEvent}, as product-service consumes it.
+ * {@code stockChanges} is signed per product: negative takes stock, positive returns it.
+ */
+public record StockEvent(String eventId, Long orderId, Map<Long, Integer> stockChanges) {
+}
@@ -0,0 +1,15 @@
+package com.example.order.dto;
+
+/**
+ * product-service's answer for one {@link StockEvent}.
+ */
+public record StockEventResult(String eventId, Outcome outcome) {
+
+    public enum Outcome {
+        APPLIED,
+        // Already applied by an earlier delivery
+        DUPLICATE,
+        // Could not be applied (e.g. not enough stock)
+        REJECTED
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * The outcome of a request sent with an Idempotency-Key, kept so that retries of the
+ * same request get the same response back instead of repeating the write.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expiresAt"))
+public class IdempotencyRecord implements Persistable<String> {
+
+    // "<scope>:<user>:<Idempotency-Key>"
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    // SHA-256 of the request body; a replay with a different body is refused
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Lob
+    private String responseBody;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // Always insert new records: a clash on the key means another request claimed it first
+    @Transient
+    private boolean isNew = true;
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String idempotencyKey, String requestHash, Instant expiresAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.expiresAt = expiresAt;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public String getId() { return idempotencyKey; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    public String getRequestHash() { return requestHash; }
+
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+}
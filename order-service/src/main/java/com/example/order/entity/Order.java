@@ -1,12 +1,21 @@
 package com.example.order.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.util.Map;
 
 @Entity
 @Table(name = "orders")
 public class Order {
 
+    public enum Status {
+        // Placed; stock is still being reserved by the order placement saga
+        PENDING,
+        CONFIRMED,
+        // Stock could not be reserved; any partial reservation was returned
+        CANCELLED
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -14,12 +23,24 @@ public class Order {
     private Long customerId;
 
     // Map<productId, quantity>
+    // Paths that don't fetch-join the lines (e.g. findAll) initialise them 100 orders per query
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "order_products", joinColumns = @JoinColumn(name = "order_id"))
     @MapKeyColumn(name = "product_id")
     @Column(name = "quantity")
     private Map<Long, Integer> productQuantities;
 
+    // Null for orders placed before order placement sagas, which count as confirmed
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Status status;
+
+    // Bumped on every update (including line changes); exposed to clients as the ETag
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public Order() {}
 
     public Order(Long id, Long customerId, Map<Long, Integer> productQuantities) {
@@ -35,6 +56,12 @@ public class Order {
     public Long getCustomerId() { return customerId; }
     public void setCustomerId(Long customerId) { this.customerId = customerId; }
 
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     public Map<Long, Integer> getProductQuantities() { return productQuantities; }
     public void setProductQuantities(Map<Long, Integer> productQuantities) { this.productQuantities = productQuantities; }
 }
@@ -0,0 +1,89 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outbox row: a stock change caused by an order write, saved in the same transaction as the order.
+ * The outbox relay later delivers pending events to product-service, oldest first.
+ */
+@Entity
+@Table(name = "order_events", indexes = @Index(name = "idx_order_events_status", columnList = "status, id"))
+public class OrderEvent {
+
+    // ORDER_CREATED is no longer written (placement reserves stock through OrderPlacementSaga) but may still be pending
+    public enum Type { ORDER_CREATED, ORDER_UPDATED, ORDER_DELETED }
+
+    public enum Status { PENDING, PUBLISHED, REJECTED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Sent along with the event so product-service can drop redeliveries
+    @Column(nullable = false, unique = true, length = 36)
+    private String eventId;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    // Map<productId, signed stock change>: negative takes stock, positive returns it
+    @ElementCollection
+    @BatchSize(size = 100)
+    @CollectionTable(name = "order_event_stock_changes", joinColumns = @JoinColumn(name = "order_event_id"))
+    @MapKeyColumn(name = "product_id")
+    @Column(name = "stock_change")
+    private Map<Long, Integer> stockChanges;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    // Failed delivery attempts so far
+    private int attempts;
+
+    private Instant createdAt;
+
+    private Instant publishedAt;
+
+    public OrderEvent() {}
+
+    public OrderEvent(Long orderId, Type type, Map<Long, Integer> stockChanges) {
+        this.eventId = UUID.randomUUID().toString();
+        this.orderId = orderId;
+        this.type = type;
+        this.stockChanges = stockChanges;
+        this.createdAt = Instant.now();
+    }
+
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEventId() { return eventId; }
+
+    public Long getOrderId() { return orderId; }
+
+    public Type getType() { return type; }
+
+    public Map<Long, Integer> getStockChanges() { return stockChanges; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public Instant getCreatedAt() { return createdAt; }
+
+    public Instant getPublishedAt() { return publishedAt; }
+    public void setPublishedAt(Instant publishedAt) { this.publishedAt = publishedAt; }
+}
@@ -0,0 +1,62 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * One run of a saga, e.g. placing one order. Its steps are tracked in {@link SagaStepState}.
+ * {@code updatedAt} doubles as a lease: an instance only runs a saga after moving it forward.
+ */
+@Entity
+@Table(name = "sagas", indexes = @Index(name = "idx_sagas_status_updated_at", columnList = "status, updatedAt"))
+public class SagaInstance {
+
+    public enum Status { RUNNING, COMPENSATING, COMPLETED, COMPENSATED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String type;
+
+    // What the saga is about, e.g. the order id
+    @Column(nullable = false, length = 64)
+    private String referenceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.RUNNING;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    public SagaInstance() {}
+
+    public SagaInstance(String type, String referenceId) {
+        this.type = type;
+        this.referenceId = referenceId;
+        // Millisecond precision survives every database round trip, so the lease check compares equal
+        this.createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        this.updatedAt = createdAt;
+    }
+
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getType() { return type; }
+
+    public String getReferenceId() { return referenceId; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Instant getCreatedAt() { return createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
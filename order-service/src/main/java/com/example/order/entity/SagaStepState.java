@@ -0,0 +1,71 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Progress of one saga step, so a saga can be resumed (or compensated) after a crash.
+ */
+@Entity
+@Table(name = "saga_steps", uniqueConstraints = @UniqueConstraint(columnNames = {"sagaId", "name"}))
+public class SagaStepState {
+
+    public enum Status {
+        PENDING,
+        DONE,
+        // Definitively rejected; nothing to compensate
+        FAILED,
+        COMPENSATED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long sagaId;
+
+    @Column(nullable = false, length = 64)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    // Attempts that ended without a definite answer
+    private int attempts;
+
+    @Column(length = 500)
+    private String lastError;
+
+    private Instant updatedAt;
+
+    public SagaStepState() {}
+
+    public SagaStepState(Long sagaId, String name) {
+        this.sagaId = sagaId;
+        this.name = name;
+        this.updatedAt = Instant.now();
+    }
+
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getSagaId() { return sagaId; }
+
+    public String getName() { return name; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
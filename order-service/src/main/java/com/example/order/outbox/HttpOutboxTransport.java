@@ -0,0 +1,28 @@
+package com.example.order.outbox;
+
+import com.example.order.client.ProductClient;
+import com.example.order.dto.StockEvent;
+import com.example.order.dto.StockEventResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Default transport: posts each batch straight to product-service's stock event endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.transport", havingValue = "http", matchIfMissing = true)
+public class HttpOutboxTransport implements OutboxTransport {
+
+    private final ProductClient productClient;
+
+    public HttpOutboxTransport(ProductClient productClient) {
+        this.productClient = productClient;
+    }
+
+    @Override
+    public List<StockEventResult> publish(List<StockEvent> events) {
+        return productClient.publishStockEvents(events);
+    }
+}
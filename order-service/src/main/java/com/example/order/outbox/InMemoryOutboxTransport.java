@@ -0,0 +1,53 @@
+package com.example.order.outbox;
+
+import com.example.order.dto.StockEvent;
+import com.example.order.dto.StockEventResult;
+import com.example.order.dto.StockEventResult.Outcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * In-process stand-in for a broker, for tests and running order-service on its own
+ * (order.outbox.transport=in-memory). Keeps every delivered event and answers like an
+ * idempotent consumer: repeated event ids are DUPLICATE, everything else goes to {@link #consumer}.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.transport", havingValue = "in-memory")
+public class InMemoryOutboxTransport implements OutboxTransport {
+
+    private final List<StockEvent> delivered = new CopyOnWriteArrayList<>();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private volatile Function<StockEvent, Outcome> consumer = event -> Outcome.APPLIED;
+
+    @Override
+    public List<StockEventResult> publish(List<StockEvent> events) {
+        List<StockEventResult> results = new ArrayList<>(events.size());
+        for (StockEvent event : events) {
+            delivered.add(event);
+            Outcome outcome = seen.add(event.eventId()) ? consumer.apply(event) : Outcome.DUPLICATE;
+            results.add(new StockEventResult(event.eventId(), outcome));
+        }
+        return results;
+    }
+
+    /**
+     * Every event delivered so far, redeliveries included, in delivery order.
+     */
+    public List<StockEvent> delivered() {
+        return List.copyOf(delivered);
+    }
+
+    /**
+     * Decide the outcome of first deliveries, e.g. to simulate a stock shortage.
+     */
+    public void setConsumer(Function<StockEvent, Outcome> consumer) {
+        this.consumer = consumer;
+    }
+}
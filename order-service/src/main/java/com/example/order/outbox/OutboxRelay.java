@@ -0,0 +1,103 @@
+package com.example.order.outbox;
+
+import com.example.order.dto.StockEvent;
+import com.example.order.dto.StockEventResult;
+import com.example.order.entity.OrderEvent;
+import com.example.order.repository.OrderEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background relay from the order_events outbox to product-service.
+ * Pending events are delivered in batches, oldest first; a batch that cannot be delivered stays
+ * pending and is retried on the next poll, so delivery is at-least-once and never out of order.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OrderEventRepository repository;
+    private final OutboxTransport transport;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+
+    public OutboxRelay(OrderEventRepository repository,
+                       OutboxTransport transport,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${order.outbox.batch-size:100}") int batchSize) {
+        this.repository = repository;
+        this.transport = transport;
+        this.transaction = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Relay batches until the outbox is drained, so a burst is not throttled to one batch per poll.
+     */
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval:500ms}")
+    public void relayPending() {
+        while (relayBatch() == batchSize) {
+            // keep draining
+        }
+    }
+
+    /**
+     * Deliver the next batch of pending events and record the outcome.
+     * Returns the number of events settled (0 when the outbox is empty or delivery failed).
+     */
+    int relayBatch() {
+        Integer settled = transaction.execute(status -> {
+            List<OrderEvent> events = repository.lockNextBatch(OrderEvent.Status.PENDING, Limit.of(batchSize));
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            List<StockEventResult> results;
+            try {
+                results = transport.publish(events.stream()
+                        .map(event -> new StockEvent(event.getEventId(), event.getOrderId(), event.getStockChanges()))
+                        .toList());
+            } catch (RuntimeException e) {
+                logger.warn("Could not relay {} order events, will retry: {}", events.size(), e.getMessage());
+                events.forEach(event -> event.setAttempts(event.getAttempts() + 1));
+                return 0;
+            }
+
+            Map<String, StockEventResult.Outcome> outcomes = new HashMap<>();
+            results.forEach(result -> outcomes.put(result.eventId(), result.outcome()));
+
+            Instant now = Instant.now();
+            int count = 0;
+            for (OrderEvent event : events) {
+                StockEventResult.Outcome outcome = outcomes.get(event.getEventId());
+                if (outcome == null) {
+                    continue; // not handled this time; stays pending
+                }
+                if (outcome == StockEventResult.Outcome.REJECTED) {
+                    logger.warn("Stock event {} ({}) for order {} was rejected by product-service",
+                            event.getEventId(), event.getType(), event.getOrderId());
+                    event.setStatus(OrderEvent.Status.REJECTED);
+                } else {
+                    event.setStatus(OrderEvent.Status.PUBLISHED);
+                }
+                event.setPublishedAt(now);
+                count++;
+            }
+            return count;
+        });
+        return settled == null ? 0 : settled;
+    }
+}
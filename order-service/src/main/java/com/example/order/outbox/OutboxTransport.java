@@ -0,0 +1,19 @@
+package com.example.order.outbox;
+
+import com.example.order.dto.StockEvent;
+import com.example.order.dto.StockEventResult;
+
+import java.util.List;
+
+/**
+ * How the outbox relay hands stock events to product-service.
+ */
+public interface OutboxTransport {
+
+    /**
+     * Deliver a batch of events, oldest first, and return one result per event that was handled.
+     * Throws if the batch could not be delivered; the relay then retries it later, so
+     * consumers must tolerate the same event arriving more than once.
+     */
+    List<StockEventResult> publish(List<StockEvent> events);
+}
@@ -0,0 +1,28 @@
+package com.example.order.repository;
+
+import com.example.order.entity.OrderEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    /**
+     * The oldest {@code limit} events in the given status, locked for the rest of the transaction.
+     * Rows another relay instance has locked are skipped (lock timeout -2 is SKIP LOCKED),
+     * so several order-service instances can relay side by side without double work.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OrderEvent e where e.status = :status order by e.id")
+    List<OrderEvent> lockNextBatch(@Param("status") OrderEvent.Status status, Limit limit);
+
+    long countByStatus(OrderEvent.Status status);
+}
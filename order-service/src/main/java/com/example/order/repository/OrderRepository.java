@@ -1,7 +1,61 @@
 package com.example.order.repository;
 
 import com.example.order.entity.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * Load an order together with its product lines in a single statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = "productQuantities")
+    Optional<Order> findById(Long id);
+
+    /**
+     * Move an order from one status to another, bumping its version.
+     * Returns 0 when the order is missing or no longer in {@code from}.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :to, o.version = o.version + 1 where o.id = :id and o.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") Order.Status from, @Param("to") Order.Status to);
+
+    /**
+     * Just the version of an order, for cheap conditional GETs.
+     */
+    @Query("select o.version from Order o where o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Ids of the next {@code limit} orders after {@code afterId}, in id order.
+     */
+    @Query("select o.id from Order o where o.id > :afterId order by o.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Orders with the given ids, product lines fetched in the same statement.
+     */
+    @EntityGraph(attributePaths = "productQuantities")
+    List<Order> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    /**
+     * Keyset page: the next {@code limit} orders after {@code afterId}, in id order, with
+     * product lines loaded. Always two statements, whatever the page size: the ids are
+     * paged first so the collection fetch join never has to be paginated in memory.
+     */
+    default List<Order> findPageAfter(Long afterId, Limit limit) {
+        List<Long> ids = findIdsAfter(afterId, limit);
+        return ids.isEmpty() ? List.of() : findByIdInOrderByIdAsc(ids);
+    }
 }
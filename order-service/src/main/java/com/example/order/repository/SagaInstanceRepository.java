@@ -0,0 +1,39 @@
+package com.example.order.repository;
+
+import com.example.order.entity.SagaInstance;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface SagaInstanceRepository extends JpaRepository<SagaInstance, Long> {
+
+    /**
+     * Unfinished sagas nobody has moved forward since {@code before}, oldest first.
+     */
+    List<SagaInstance> findByStatusInAndUpdatedAtBeforeOrderByIdAsc(Collection<SagaInstance.Status> statuses,
+                                                                   Instant before, Limit limit);
+
+    /**
+     * Take the lease on a saga: succeeds (returns 1) only if nobody touched it since {@code seen}.
+     */
+    @Modifying
+    @Transactional
+    @Query("update SagaInstance s set s.updatedAt = :now where s.id = :id and s.updatedAt = :seen")
+    int claim(@Param("id") Long id, @Param("seen") Instant seen, @Param("now") Instant now);
+
+    /**
+     * Move a saga to {@code status}, only while the caller still holds the lease it renewed at {@code seen}.
+     */
+    @Modifying
+    @Transactional
+    @Query("update SagaInstance s set s.status = :status, s.updatedAt = :now where s.id = :id and s.updatedAt = :seen")
+    int updateStatus(@Param("id") Long id, @Param("status") SagaInstance.Status status,
+                     @Param("seen") Instant seen, @Param("now") Instant now);
+}
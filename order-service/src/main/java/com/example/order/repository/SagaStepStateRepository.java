@@ -0,0 +1,29 @@
+package com.example.order.repository;
+
+import com.example.order.entity.SagaStepState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface SagaStepStateRepository extends JpaRepository<SagaStepState, Long> {
+
+    List<SagaStepState> findBySagaId(Long sagaId);
+
+    @Modifying
+    @Transactional
+    @Query("update SagaStepState s set s.status = :status, s.updatedAt = :now where s.sagaId = :sagaId and s.name = :name")
+    int updateStatus(@Param("sagaId") Long sagaId, @Param("name") String name,
+                     @Param("status") SagaStepState.Status status, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update SagaStepState s set s.attempts = s.attempts + 1, s.lastError = :error, s.updatedAt = :now "
+            + "where s.sagaId = :sagaId and s.name = :name")
+    int recordAttempt(@Param("sagaId") Long sagaId, @Param("name") String name,
+                      @Param("error") String error, @Param("now") Instant now);
+}
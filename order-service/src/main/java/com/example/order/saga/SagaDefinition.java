@@ -0,0 +1,29 @@
+package com.example.order.saga;
+
+import java.util.List;
+
+/**
+ * Describes one kind of saga to the {@link SagaOrchestrator}.
+ * Steps are rebuilt from the reference id each time a saga runs, so a saga can be
+ * resumed by any instance after a restart.
+ */
+public interface SagaDefinition {
+
+    String type();
+
+    /**
+     * The saga's steps as stages: stages run one after another, steps within a stage in parallel.
+     * Step names must be stable for a given reference id.
+     */
+    List<List<SagaStep>> stages(String referenceId);
+
+    /**
+     * Called once every step is done.
+     */
+    void onCompleted(String referenceId);
+
+    /**
+     * Called once a failed saga has been fully compensated.
+     */
+    void onCompensated(String referenceId);
+}
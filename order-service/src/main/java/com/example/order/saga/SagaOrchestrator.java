@@ -0,0 +1,336 @@
+package com.example.order.saga;
+
+import com.example.order.entity.SagaInstance;
+import com.example.order.entity.SagaStepState;
+import com.example.order.exception.BadRequestException;
+import com.example.order.repository.SagaInstanceRepository;
+import com.example.order.repository.SagaStepStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs sagas: multi-step operations across services whose completed steps are undone
+ * (compensated, in reverse order) when a later step is rejected.
+ * <p>
+ * Progress is kept in the sagas / saga_steps tables, so a saga interrupted by a crash is picked up
+ * again by {@link #resumeStalled()}. A step that fails without a definite answer (timeout, 5xx,
+ * open breaker) is retried, never compensated blindly, because it may have taken effect;
+ * only a {@link BadRequestException} counts as a rejection.
+ * <p>
+ * The instance running a saga renews its lease (the saga's updatedAt) after every step, and checks it
+ * is still held before any status change or compensation, so a saga that outlived its lease and was
+ * resumed elsewhere is never driven by two instances at once.
+ */
+@Component
+public class SagaOrchestrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaOrchestrator.class);
+
+    private enum Outcome { DONE, REJECTED, UNCERTAIN, LEASE_LOST }
+
+    /**
+     * Published when a saga has been recorded; it starts running once the recording transaction commits.
+     */
+    public record SagaStarted(Long sagaId) {
+    }
+
+    private final Map<String, SagaDefinition> definitions;
+    private final SagaInstanceRepository instances;
+    private final SagaStepStateRepository steps;
+    private final ApplicationEventPublisher events;
+    private final Executor executor;
+    private final int stepAttempts;
+    private final Duration staleAfter;
+
+    public SagaOrchestrator(List<SagaDefinition> definitions,
+                            SagaInstanceRepository instances,
+                            SagaStepStateRepository steps,
+                            ApplicationEventPublisher events,
+                            @Qualifier("sagaExecutor") Executor executor,
+                            @Value("${order.saga.step-attempts:3}") int stepAttempts,
+                            @Value("${order.saga.stale-after:30s}") Duration staleAfter) {
+        this.definitions = definitions.stream().collect(Collectors.toMap(SagaDefinition::type, Function.identity()));
+        this.instances = instances;
+        this.steps = steps;
+        this.events = events;
+        this.executor = executor;
+        this.stepAttempts = stepAttempts;
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Record a new saga and its steps in the caller's transaction.
+     * The saga starts running in the background once that transaction commits.
+     */
+    @Transactional
+    public Long start(String type, String referenceId) {
+        SagaDefinition definition = definition(type);
+        SagaInstance saga = instances.save(new SagaInstance(type, referenceId));
+        for (List<SagaStep> stage : definition.stages(referenceId)) {
+            for (SagaStep step : stage) {
+                steps.save(new SagaStepState(saga.getId(), step.name()));
+            }
+        }
+        events.publishEvent(new SagaStarted(saga.getId()));
+        return saga.getId();
+    }
+
+    @TransactionalEventListener
+    public void onStarted(SagaStarted event) {
+        dispatch(event.sagaId());
+    }
+
+    /**
+     * Pick up sagas that stopped moving: interrupted by a restart, or waiting on an uncertain step.
+     */
+    @Scheduled(fixedDelayString = "${order.saga.recovery-interval:30s}")
+    public void resumeStalled() {
+        List<SagaInstance> stalled = instances.findByStatusInAndUpdatedAtBeforeOrderByIdAsc(
+                List.of(SagaInstance.Status.RUNNING, SagaInstance.Status.COMPENSATING),
+                now().minus(staleAfter), Limit.of(100));
+        for (SagaInstance saga : stalled) {
+            dispatch(saga.getId());
+        }
+    }
+
+    // Run a saga on the executor; when it is saturated the saga stays RUNNING for resumeStalled to pick up
+    private void dispatch(Long sagaId) {
+        try {
+            executor.execute(() -> run(sagaId));
+        } catch (RejectedExecutionException e) {
+            logger.info("Saga {} deferred, saga executor is saturated", sagaId);
+        }
+    }
+
+    /**
+     * Move a saga as far as it can go: run its pending steps, then complete it, or compensate it
+     * if a step was rejected. Returns early, leaving the saga to {@link #resumeStalled()}, when
+     * a step stays uncertain or another instance is running it (or took it over meanwhile).
+     */
+    public void run(Long sagaId) {
+        SagaInstance saga = instances.findById(sagaId).orElse(null);
+        if (saga == null || saga.getStatus() == SagaInstance.Status.COMPLETED
+                || saga.getStatus() == SagaInstance.Status.COMPENSATED) {
+            return;
+        }
+        Instant claimed = now();
+        if (instances.claim(sagaId, saga.getUpdatedAt(), claimed) == 0) {
+            return;
+        }
+        Lease lease = new Lease(sagaId, claimed);
+        try {
+            SagaDefinition definition = definition(saga.getType());
+            List<List<SagaStep>> stages = definition.stages(saga.getReferenceId());
+            Map<String, SagaStepState.Status> progress = new ConcurrentHashMap<>();
+            steps.findBySagaId(sagaId).forEach(step -> progress.put(step.getName(), step.getStatus()));
+
+            if (saga.getStatus() == SagaInstance.Status.RUNNING) {
+                Outcome outcome = runForward(lease, stages, progress);
+                if (outcome == Outcome.UNCERTAIN || outcome == Outcome.LEASE_LOST) {
+                    return;
+                }
+                if (outcome == Outcome.DONE) {
+                    if (lease.renew()) {
+                        definition.onCompleted(saga.getReferenceId());
+                        lease.transition(SagaInstance.Status.COMPLETED);
+                    }
+                    return;
+                }
+                if (!lease.transition(SagaInstance.Status.COMPENSATING)) {
+                    return;
+                }
+            }
+            if (compensate(lease, stages, progress) && lease.renew()) {
+                definition.onCompensated(saga.getReferenceId());
+                lease.transition(SagaInstance.Status.COMPENSATED);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Saga {} ({}) interrupted, will be resumed: {}", sagaId, saga.getType(), e.getMessage());
+        }
+    }
+
+    /**
+     * Run each stage's pending steps in parallel, stopping at the first stage that does not fully succeed.
+     * Uncertain steps win over rejections: they must be settled before anything is compensated.
+     */
+    private Outcome runForward(Lease lease, List<List<SagaStep>> stages, Map<String, SagaStepState.Status> progress) {
+        for (List<SagaStep> stage : stages) {
+            List<CompletableFuture<Outcome>> running = stage.stream()
+                    .filter(step -> progress.getOrDefault(step.name(), SagaStepState.Status.PENDING) == SagaStepState.Status.PENDING)
+                    .map(step -> submit(lease, step, progress))
+                    .toList();
+            List<Outcome> outcomes = running.stream().map(CompletableFuture::join).toList();
+            if (lease.isLost()) {
+                return Outcome.LEASE_LOST;
+            }
+            if (outcomes.contains(Outcome.UNCERTAIN)) {
+                return Outcome.UNCERTAIN;
+            }
+            if (stage.stream().anyMatch(step -> progress.get(step.name()) == SagaStepState.Status.FAILED)) {
+                return Outcome.REJECTED;
+            }
+        }
+        return Outcome.DONE;
+    }
+
+    // Run a step on the executor, or on this saga's own thread when the executor is saturated
+    private CompletableFuture<Outcome> submit(Lease lease, SagaStep step, Map<String, SagaStepState.Status> progress) {
+        try {
+            return CompletableFuture.supplyAsync(() -> execute(lease, step, progress), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(execute(lease, step, progress));
+        }
+    }
+
+    private Outcome execute(Lease lease, SagaStep step, Map<String, SagaStepState.Status> progress) {
+        Outcome outcome = attempt(lease.sagaId, step, progress);
+        lease.renew();
+        return outcome;
+    }
+
+    private Outcome attempt(Long sagaId, SagaStep step, Map<String, SagaStepState.Status> progress) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                step.action().run();
+                steps.updateStatus(sagaId, step.name(), SagaStepState.Status.DONE, now());
+                progress.put(step.name(), SagaStepState.Status.DONE);
+                return Outcome.DONE;
+            } catch (BadRequestException e) {
+                logger.info("Saga {} step {} rejected: {}", sagaId, step.name(), e.getMessage());
+                steps.updateStatus(sagaId, step.name(), SagaStepState.Status.FAILED, now());
+                progress.put(step.name(), SagaStepState.Status.FAILED);
+                return Outcome.REJECTED;
+            } catch (RuntimeException e) {
+                steps.recordAttempt(sagaId, step.name(), abbreviate(e.getMessage()), now());
+                if (attempt >= stepAttempts) {
+                    logger.warn("Saga {} step {} still uncertain after {} attempts: {}",
+                            sagaId, step.name(), attempt, e.getMessage());
+                    return Outcome.UNCERTAIN;
+                }
+            }
+        }
+    }
+
+    /**
+     * Undo every completed step, latest stage first. Returns false if a compensation failed;
+     * the saga then stays COMPENSATING and is retried later.
+     */
+    private boolean compensate(Lease lease, List<List<SagaStep>> stages, Map<String, SagaStepState.Status> progress) {
+        Long sagaId = lease.sagaId;
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            List<SagaStep> stage = stages.get(i);
+            for (int j = stage.size() - 1; j >= 0; j--) {
+                SagaStep step = stage.get(j);
+                if (progress.get(step.name()) != SagaStepState.Status.DONE) {
+                    continue;
+                }
+                // Another instance took the saga over: it compensates from its own view of the steps
+                if (!lease.renew()) {
+                    return false;
+                }
+                try {
+                    step.compensation().run();
+                    steps.updateStatus(sagaId, step.name(), SagaStepState.Status.COMPENSATED, now());
+                    progress.put(step.name(), SagaStepState.Status.COMPENSATED);
+                } catch (RuntimeException e) {
+                    steps.recordAttempt(sagaId, step.name(), abbreviate(e.getMessage()), now());
+                    logger.warn("Saga {} could not compensate step {}, will retry: {}", sagaId, step.name(), e.getMessage());
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This instance's hold on a running saga: the updatedAt it last wrote. Renewals and status changes
+     * only apply while updatedAt is still that value; once one fails, the lease is lost for good.
+     */
+    private final class Lease {
+
+        private final Long sagaId;
+        private Instant held;
+        private boolean lost;
+
+        Lease(Long sagaId, Instant held) {
+            this.sagaId = sagaId;
+            this.held = held;
+        }
+
+        synchronized boolean renew() {
+            if (lost) {
+                return false;
+            }
+            Instant next = next();
+            if (instances.claim(sagaId, held, next) == 0) {
+                return lose();
+            }
+            held = next;
+            return true;
+        }
+
+        synchronized boolean transition(SagaInstance.Status status) {
+            if (lost) {
+                return false;
+            }
+            Instant next = next();
+            if (instances.updateStatus(sagaId, status, held, next) == 0) {
+                return lose();
+            }
+            held = next;
+            return true;
+        }
+
+        synchronized boolean isLost() {
+            return lost;
+        }
+
+        // Strictly after what we hold, so two renewals within a millisecond still move updatedAt
+        private Instant next() {
+            Instant now = now();
+            return now.isAfter(held) ? now : held.plusMillis(1);
+        }
+
+        private boolean lose() {
+            lost = true;
+            logger.info("Saga {} lease lost, another instance has taken it over", sagaId);
+            return false;
+        }
+    }
+
+    private SagaDefinition definition(String type) {
+        SagaDefinition definition = definitions.get(type);
+        if (definition == null) {
+            throw new IllegalStateException("No saga definition for type " + type);
+        }
+        return definition;
+    }
+
+    private static String abbreviate(String message) {
+        return message == null || message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.order.saga;
+
+/**
+ * One step of a saga and the action that undoes it.
+ * Both may run more than once (after a timeout, or when a saga is resumed), so both must be idempotent.
+ */
+public record SagaStep(String name, Runnable action, Runnable compensation) {
+}
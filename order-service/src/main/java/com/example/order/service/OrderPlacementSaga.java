@@ -0,0 +1,70 @@
+package com.example.order.service;
+
+import com.example.order.client.ProductClient;
+import com.example.order.entity.Order;
+import com.example.order.exception.OrderNotFoundException;
+import com.example.order.repository.OrderRepository;
+import com.example.order.saga.SagaDefinition;
+import com.example.order.saga.SagaStep;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Places an order that has been saved as PENDING: reserves stock for every line in parallel,
+ * one product per step, then confirms the order. If any product is short, the lines already
+ * reserved are released again and the order is cancelled.
+ * Each call carries an Idempotency-Key derived from the order and step, so retries and
+ * resumed sagas never reserve or release the same line twice.
+ */
+@Component
+public class OrderPlacementSaga implements SagaDefinition {
+
+    public static final String TYPE = "order-placement";
+
+    private final OrderRepository repository;
+    private final ProductClient productClient;
+
+    public OrderPlacementSaga(OrderRepository repository, ProductClient productClient) {
+        this.repository = repository;
+        this.productClient = productClient;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public List<List<SagaStep>> stages(String referenceId) {
+        Long orderId = Long.valueOf(referenceId);
+        Order order = repository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with id " + orderId));
+
+        List<SagaStep> reservations = new TreeMap<>(order.getProductQuantities()).entrySet().stream()
+                .map(line -> reserveStep(orderId, line.getKey(), line.getValue()))
+                .toList();
+        return List.of(reservations);
+    }
+
+    private SagaStep reserveStep(Long orderId, Long productId, int quantity) {
+        String name = "reserve-stock:" + productId;
+        String key = "order-" + orderId + ":" + name;
+        Map<Long, Integer> line = Map.of(productId, quantity);
+        return new SagaStep(name,
+                () -> productClient.reserveStock(line, key),
+                () -> productClient.releaseStock(line, key + ":release"));
+    }
+
+    @Override
+    public void onCompleted(String referenceId) {
+        repository.updateStatus(Long.valueOf(referenceId), Order.Status.PENDING, Order.Status.CONFIRMED);
+    }
+
+    @Override
+    public void onCompensated(String referenceId) {
+        repository.updateStatus(Long.valueOf(referenceId), Order.Status.PENDING, Order.Status.CANCELLED);
+    }
+}
@@ -1,37 +1,113 @@
 package com.example.order.service;
 
+import com.example.order.client.CustomerClient;
+import com.example.order.client.ProductClient;
 import com.example.order.dto.OrderDetailResponse;
 import com.example.order.dto.ProductDetail;
 import com.example.order.entity.Order;
+import com.example.order.entity.OrderEvent;
 import com.example.order.exception.BadRequestException;
 import com.example.order.exception.OrderNotFoundException;
+import com.example.order.exception.PreconditionFailedException;
+import com.example.order.repository.OrderEventRepository;
 import com.example.order.repository.OrderRepository;
+import com.example.order.saga.SagaOrchestrator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    static final String UNKNOWN_CUSTOMER = "Unknown Customer";
+    static final String UNAVAILABLE_PRODUCT = "Unavailable Product";
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final OrderRepository repository;
-    private final RestTemplate restTemplate;
+    private final OrderEventRepository eventRepository;
+    private final SagaOrchestrator sagas;
+    private final CustomerClient customerClient;
+    private final ProductClient productClient;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor enrichmentExecutor;
+    private final Duration enrichmentTimeout;
 
-    public OrderService(OrderRepository repository, RestTemplate restTemplate) {
+    public OrderService(OrderRepository repository,
+                        OrderEventRepository eventRepository,
+                        SagaOrchestrator sagas,
+                        CustomerClient customerClient,
+                        ProductClient productClient,
+                        TransactionTemplate transactionTemplate,
+                        @Qualifier("enrichmentExecutor") Executor enrichmentExecutor,
+                        @Value("${order.enrichment.timeout:2s}") Duration enrichmentTimeout) {
         this.repository = repository;
-        this.restTemplate = restTemplate;
+        this.eventRepository = eventRepository;
+        this.sagas = sagas;
+        this.customerClient = customerClient;
+        this.productClient = productClient;
+        this.transaction = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enrichmentExecutor = enrichmentExecutor;
+        this.enrichmentTimeout = enrichmentTimeout;
     }
 
     /**
-     * Retrieve all orders with detailed info (customer + products)
+     * Retrieve one keyset page of orders with detailed info (customer + products):
+     * up to {@code limit} orders whose id is greater than {@code afterId}.
+     * Pass the last returned orderId as {@code afterId} to get the next page.
      */
-    public List<OrderDetailResponse> getAllOrders() {
-        return repository.findAll()
-                .stream()
-                .map(this::convertToDetailedResponse)
-                .collect(Collectors.toList());
+    public List<OrderDetailResponse> getOrdersPage(long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return convertToDetailedResponses(loadPage(afterId, limit));
+    }
+
+    /**
+     * Walk all orders in id order, handing each enriched batch of {@code batchSize}
+     * orders to {@code consumer}. Only one batch is held in memory at a time.
+     */
+    public void forEachOrderBatch(int batchSize, Consumer<List<OrderDetailResponse>> consumer) {
+        if (batchSize < 1 || batchSize > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Batch size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long afterId = 0;
+        while (true) {
+            List<Order> page = loadPage(afterId, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            consumer.accept(convertToDetailedResponses(page));
+            if (page.size() < batchSize) {
+                return;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Current version of an order, without loading its lines or enriching it.
+     */
+    public long getOrderVersion(Long id) {
+        return repository.findVersionById(id)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with id " + id));
     }
 
     /**
@@ -40,62 +116,87 @@ public class OrderService {
     public OrderDetailResponse getOrderById(Long id) {
         Order order = repository.findById(id)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found with id " + id));
-        return convertToDetailedResponse(order);
+        return convertToDetailedResponses(List.of(order)).get(0);
     }
 
     /**
      * Create a new order after validating its fields.
-     * 🟩 Reduces product stock accordingly.
+     * 🟩 The order is saved as PENDING together with an order placement saga, which
+     * reserves its stock once this transaction commits and then confirms the order
+     * (or cancels it, releasing any partial reservation, if a product is short).
      */
     @Transactional
     public Order createOrder(Order order) {
         validateOrder(order);
 
-        // 🟩 Deduct stock for each product
-        for (Map.Entry<Long, Integer> entry : order.getProductQuantities().entrySet()) {
-            Long productId = entry.getKey();
-            int quantity = entry.getValue();
-            updateProductStock(productId, -quantity);
-        }
-
-        return repository.save(order);
+        order.setStatus(Order.Status.PENDING);
+        Order saved = repository.save(order);
+        sagas.start(OrderPlacementSaga.TYPE, String.valueOf(saved.getId()));
+        return saved;
     }
 
     /**
      * Delete an order by ID.
-     * 🟩 Restores stock quantities.
+     * 🟩 Restores stock quantities, via the outbox. Cancelled orders hold no stock.
      */
     @Transactional
     public void deleteOrder(Long id) {
         Order order = repository.findById(id)
                 .orElseThrow(() -> new OrderNotFoundException("Cannot delete — order not found with id " + id));
+        rejectWhilePending(order);
+
+        repository.delete(order);
 
         // 🟩 Restore stock
-        for (Map.Entry<Long, Integer> entry : order.getProductQuantities().entrySet()) {
-            updateProductStock(entry.getKey(), entry.getValue());
+        if (order.getStatus() != Order.Status.CANCELLED) {
+            recordStockChanges(id, OrderEvent.Type.ORDER_DELETED, new HashMap<>(order.getProductQuantities()));
         }
-
-        repository.deleteById(id);
     }
     
     
     
     @Transactional
     public Order updateOrder(Long id, Order updated) {
+        return updateOrder(id, updated, null);
+    }
+
+    /**
+     * Update an order, but only if it is still at {@code expectedVersion} (when given).
+     * A concurrent update that commits first makes this one fail its @Version check on flush.
+     * Extra stock is reserved before the update commits, so an order can never be raised above the
+     * stock actually taken for it; stock the update gives back is returned through the outbox.
+     */
+    @Transactional
+    public Order updateOrder(Long id, Order updated, Long expectedVersion) {
         validateOrder(updated);
 
         // Fetch the existing order
         Order existing = repository.findById(id)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found with id " + id));
-
-        // 🟩 Restore stock from old order quantities
-        for (Map.Entry<Long, Integer> entry : existing.getProductQuantities().entrySet()) {
-            updateProductStock(entry.getKey(), entry.getValue());
+        if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Order " + id + " is at version " + existing.getVersion()
+                    + ", not " + expectedVersion);
+        }
+        rejectWhilePending(existing);
+        if (existing.getStatus() == Order.Status.CANCELLED) {
+            throw new BadRequestException("Order " + id + " was cancelled and can no longer be changed");
         }
 
-        // 🟨 Deduct stock for new order quantities
-        for (Map.Entry<Long, Integer> entry : updated.getProductQuantities().entrySet()) {
-            updateProductStock(entry.getKey(), -entry.getValue());
+        // 🟩 Only touch stock for lines whose quantity actually changed
+        Map<Long, Integer> extraStock = new HashMap<>();
+        Map<Long, Integer> returnedStock = new HashMap<>();
+        stockChanges(existing.getProductQuantities(), updated.getProductQuantities()).forEach((productId, change) -> {
+            if (change < 0) {
+                extraStock.put(productId, -change);
+            } else {
+                returnedStock.put(productId, change);
+            }
+        });
+        if (!extraStock.isEmpty()) {
+            reserveForUpdate(id, extraStock);
+        }
+        if (!returnedStock.isEmpty()) {
+            recordStockChanges(id, OrderEvent.Type.ORDER_UPDATED, returnedStock);
         }
 
         // 🟦 Update and save the order
@@ -106,44 +207,115 @@ public class OrderService {
     }
 
     /**
-     * Convert Order entity to a detailed response containing customer + products info.
+     * Stock for a PENDING order is still being reserved by its saga; changing it now would race the saga.
      */
-    private OrderDetailResponse convertToDetailedResponse(Order order) {
-        String customerUrl = "http://localhost:8080/customer-service/customers/" + order.getCustomerId();
-        Map<?, ?> customer = restTemplate.getForObject(customerUrl, Map.class);
-        String customerName = (customer != null && customer.containsKey("name"))
-                ? (String) customer.get("name")
-                : "Unknown Customer";
+    private void rejectWhilePending(Order order) {
+        if (order.getStatus() == Order.Status.PENDING) {
+            throw new BadRequestException("Order " + order.getId() + " is still being placed; try again shortly");
+        }
+    }
+
+    /**
+     * Take the extra stock an update needs before it commits; a shortage fails the update (400) like
+     * it always did. If the update then rolls back, the reservation is handed back through the outbox.
+     * Each attempt gets its own idempotency key, so a retried update never replays a released reservation.
+     */
+    private void reserveForUpdate(Long orderId, Map<Long, Integer> quantities) {
+        productClient.reserveStock(quantities, "order-" + orderId + ":update:" + UUID.randomUUID());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    transaction.executeWithoutResult(tx ->
+                            recordStockChanges(orderId, OrderEvent.Type.ORDER_UPDATED, quantities));
+                }
+            }
+        });
+    }
+
+    /**
+     * Queue stock changes for product-service in the outbox. Must run inside the transaction
+     * that writes the order, so the order and its stock event commit (or roll back) together.
+     */
+    private void recordStockChanges(Long orderId, OrderEvent.Type type, Map<Long, Integer> stockChanges) {
+        eventRepository.save(new OrderEvent(orderId, type, stockChanges));
+    }
+
+    /**
+     * Load a keyset page with product lines already fetched, so it can be enriched
+     * outside the transaction (e.g. on a streaming response thread).
+     */
+    private List<Order> loadPage(long afterId, int limit) {
+        return readOnlyTransaction.execute(status -> repository.findPageAfter(afterId, Limit.of(limit)));
+    }
+
+    /**
+     * Per-product stock change needed to go from the old to the new quantities:
+     * positive returns stock to the product, negative takes more. Unchanged lines are omitted.
+     */
+    static Map<Long, Integer> stockChanges(Map<Long, Integer> oldQuantities, Map<Long, Integer> newQuantities) {
+        Map<Long, Integer> changes = new HashMap<>(oldQuantities);
+        newQuantities.forEach((productId, quantity) -> changes.merge(productId, -quantity, Integer::sum));
+        changes.values().removeIf(change -> change == 0);
+        return changes;
+    }
+
+    /**
+     * Convert Order entities to detailed responses containing customer + products info.
+     * All distinct customer and product ids are resolved up front with batch lookups,
+     * so the number of downstream calls does not grow with the number of orders.
+     * Customer and product lookups run concurrently under a shared deadline; whatever
+     * has not arrived by then is rendered with the fallback names.
+     */
+    private List<OrderDetailResponse> convertToDetailedResponses(List<Order> orders) {
+        Set<Long> customerIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (Order order : orders) {
+            customerIds.add(order.getCustomerId());
+            productIds.addAll(order.getProductQuantities().keySet());
+        }
+
+        CompletableFuture<Map<Long, String>> customers = lookupAsync(() -> customerClient.getCustomerNames(customerIds));
+        CompletableFuture<Map<Long, String>> products = lookupAsync(() -> productClient.getProductNames(productIds));
+
+        Map<Long, String> customerNames = customers.join();
+        Map<Long, String> productNames = products.join();
+
+        return orders.stream()
+                .map(order -> toDetailedResponse(order, customerNames, productNames))
+                .collect(Collectors.toList());
+    }
+
+    private OrderDetailResponse toDetailedResponse(Order order, Map<Long, String> customerNames,
+                                                   Map<Long, String> productNames) {
+        String customerName = customerNames.getOrDefault(order.getCustomerId(), UNKNOWN_CUSTOMER);
 
         List<ProductDetail> productDetails = new ArrayList<>();
         for (Map.Entry<Long, Integer> entry : order.getProductQuantities().entrySet()) {
             Long productId = entry.getKey();
-            int qty = entry.getValue();
-
-            try {
-                String productUrl = "http://localhost:8080/product-service/products/" + productId;
-                Map<?, ?> product = restTemplate.getForObject(productUrl, Map.class);
-                String productName = (product != null && product.containsKey("name"))
-                        ? (String) product.get("name")
-                        : "Unknown Product";
-                productDetails.add(new ProductDetail(productId, productName, qty));
-            } catch (Exception e) {
-                productDetails.add(new ProductDetail(productId, "Unavailable Product", qty));
-            }
+            String productName = productNames.getOrDefault(productId, UNAVAILABLE_PRODUCT);
+            productDetails.add(new ProductDetail(productId, productName, entry.getValue()));
         }
 
-        return new OrderDetailResponse(order.getId(), customerName, productDetails);
+        // Orders placed before sagas have no status and were confirmed synchronously
+        Order.Status status = order.getStatus() == null ? Order.Status.CONFIRMED : order.getStatus();
+        return new OrderDetailResponse(order.getId(), order.getVersion(), status.name(), customerName, productDetails);
     }
 
     /**
-     * 🟩 Helper method to call Product Service and adjust stock.
+     * Run a name lookup on the enrichment executor, resolving to an empty map on failure,
+     * once the enrichment deadline has passed, or at once if the executor is saturated.
      */
-    private void updateProductStock(Long productId, int change) {
-        String url = "http://localhost:8080/product-service/products/" + productId + "/stock?change=" + change;
+    private CompletableFuture<Map<Long, String>> lookupAsync(Supplier<Map<Long, String>> lookup) {
         try {
-            restTemplate.put(url, null);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to update stock for product ID " + productId + ": " + e.getMessage());
+            return CompletableFuture.supplyAsync(lookup, enrichmentExecutor)
+                    .completeOnTimeout(Map.of(), enrichmentTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .exceptionally(ex -> Map.of());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(Map.of());
         }
     }
 
@@ -0,0 +1,113 @@
+package com.example.order.client;
+
+import com.example.order.exception.BadRequestException;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class ProductClientTest {
+
+    private static final String BASE_URL = "http://product-service";
+
+    // Runs the call directly and hands any failure to the fallback, like a closed breaker
+    private static final CircuitBreaker CLOSED_BREAKER = new CircuitBreaker() {
+        @Override
+        public <T> T run(Supplier<T> toRun, Function<Throwable, T> fallback) {
+            try {
+                return toRun.get();
+            } catch (RuntimeException e) {
+                return fallback.apply(e);
+            }
+        }
+    };
+
+    private MockRestServiceServer server;
+    private ProductClient client;
+
+    @BeforeEach
+    void setup() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        Cache<Long, String> cache = Caffeine.newBuilder().maximumSize(100).build();
+        client = new ProductClient(restTemplate, CLOSED_BREAKER, cache, BASE_URL);
+    }
+
+    @Test
+    void testGetProductNames_FetchesOnlyCacheMisses() {
+        server.expect(requestTo(BASE_URL + "/products/batch"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().json("[1,2]"))
+                .andRespond(withSuccess("[{\"id\":1,\"name\":\"Laptop\"},{\"id\":2,\"name\":\"Phone\"}]",
+                        MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/products/batch"))
+                .andExpect(content().json("[3]"))
+                .andRespond(withSuccess("[{\"id\":3,\"name\":\"Mouse\"}]", MediaType.APPLICATION_JSON));
+
+        assertEquals(Map.of(1L, "Laptop", 2L, "Phone"), client.getProductNames(List.of(1L, 2L)));
+        assertEquals(Map.of(1L, "Laptop", 2L, "Phone", 3L, "Mouse"), client.getProductNames(List.of(1L, 2L, 3L)));
+
+        server.verify();
+    }
+
+    @Test
+    void testGetProductNames_ReadsCborAndIgnoresUnusedFields() throws Exception {
+        byte[] body = new CBORMapper().writeValueAsBytes(List.of(
+                Map.of("id", 1, "name", "Laptop", "description", "Gaming Laptop", "price", 1200.0, "quantity", 10)));
+        server.expect(requestTo(BASE_URL + "/products/batch"))
+                .andExpect(header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_CBOR));
+
+        assertEquals(Map.of(1L, "Laptop"), client.getProductNames(List.of(1L)));
+        server.verify();
+    }
+
+    @Test
+    void testGetProductNames_RefetchesAfterEviction() {
+        server.expect(requestTo(BASE_URL + "/products/batch"))
+                .andRespond(withSuccess("[{\"id\":1,\"name\":\"Laptop\"}]", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/products/batch"))
+                .andRespond(withSuccess("[{\"id\":1,\"name\":\"Laptop Pro\"}]", MediaType.APPLICATION_JSON));
+
+        client.getProductNames(List.of(1L));
+        client.evictProductName(1L);
+
+        assertEquals("Laptop Pro", client.getProductNames(List.of(1L)).get(1L));
+        server.verify();
+    }
+
+    @Test
+    void testGetProductNames_DownstreamErrorLeavesIdsUnresolved() {
+        server.expect(requestTo(BASE_URL + "/products/batch"))
+                .andRespond(withServerError());
+
+        assertTrue(client.getProductNames(List.of(1L)).isEmpty());
+    }
+
+    @Test
+    void testReserveStock_RejectionSurfacesAsBadRequest() {
+        server.expect(requestTo(BASE_URL + "/products/stock/reserve"))
+                .andExpect(header("Idempotency-Key", "order-7:reserve-stock:1"))
+                .andRespond(withBadRequest().body("Insufficient stock for product 1"));
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> client.reserveStock(Map.of(1L, 5), "order-7:reserve-stock:1"));
+        assertTrue(e.getMessage().contains("Insufficient stock"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.order.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testLoad_ConcurrentCallersForSameKeyShareOneFetch() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Map<Long, String>> leader = CompletableFuture.supplyAsync(() ->
+                singleFlight.load(List.of(1L), ids -> {
+                    fetches.incrementAndGet();
+                    fetching.countDown();
+                    await(release);
+                    return Map.of(1L, "Laptop");
+                }));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<Map<Long, String>> followerResult = new AtomicReference<>();
+        Thread follower = new Thread(() -> followerResult.set(singleFlight.load(List.of(1L), ids -> {
+            fetches.incrementAndGet();
+            return Map.of(1L, "Other");
+        })));
+        follower.start();
+        // The follower parks on the leader's flight instead of fetching
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (follower.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        follower.join(5000);
+
+        assertEquals(Map.of(1L, "Laptop"), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of(1L, "Laptop"), followerResult.get());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void testLoad_FetchesAgainOnceEarlierFlightIsDone() {
+        AtomicInteger fetches = new AtomicInteger();
+
+        singleFlight.load(List.of(1L), ids -> Map.of(1L, "v" + fetches.incrementAndGet()));
+        Map<Long, String> second = singleFlight.load(List.of(1L), ids -> Map.of(1L, "v" + fetches.incrementAndGet()));
+
+        assertEquals(Map.of(1L, "v2"), second);
+    }
+
+    @Test
+    void testLoad_FailedFetchReleasesWaitersWithoutValue() {
+        assertThrows(IllegalStateException.class, () -> singleFlight.load(List.of(1L), ids -> {
+            throw new IllegalStateException("down");
+        }));
+
+        assertEquals(Map.of(1L, "Laptop"), singleFlight.load(List.of(1L), ids -> Map.of(1L, "Laptop")));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.order.loadbalancer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LeastOutstandingRequestsLoadBalancerTest {
+
+    private final ServiceInstance first = new DefaultServiceInstance("product-1", "product-service", "10.0.0.1", 8082, false);
+    private final ServiceInstance second = new DefaultServiceInstance("product-2", "product-service", "10.0.0.2", 8082, false);
+
+    private OutstandingRequestTracker tracker;
+    private LeastOutstandingRequestsLoadBalancer loadBalancer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        ObjectProvider<ServiceInstanceListSupplier> suppliers = mock(ObjectProvider.class);
+        when(suppliers.getIfAvailable(any())).thenReturn(ServiceInstanceListSuppliers.from("product-service", first, second));
+        tracker = new OutstandingRequestTracker();
+        loadBalancer = new LeastOutstandingRequestsLoadBalancer(suppliers, tracker, "product-service");
+    }
+
+    @Test
+    void testChoose_PrefersInstanceWithFewestCallsInFlight() {
+        start(first);
+        start(first);
+        start(second);
+
+        assertEquals(second, loadBalancer.choose().block().getServer());
+    }
+
+    @Test
+    void testChoose_CountsDropWhenCallsComplete() {
+        start(first);
+        start(second);
+        start(second);
+        complete(second);
+        complete(second);
+
+        assertEquals(0, tracker.outstanding(second));
+        assertEquals(second, loadBalancer.choose().block().getServer());
+    }
+
+    private void start(ServiceInstance instance) {
+        tracker.onStartRequest(new DefaultRequest<>(), new DefaultResponse(instance));
+    }
+
+    private void complete(ServiceInstance instance) {
+        Response<ServiceInstance> response = new DefaultResponse(instance);
+        tracker.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, new DefaultRequest<>(), response));
+    }
+}
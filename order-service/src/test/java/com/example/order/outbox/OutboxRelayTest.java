@@ -0,0 +1,81 @@
+package com.example.order.outbox;
+
+import com.example.order.dto.StockEvent;
+import com.example.order.dto.StockEventResult.Outcome;
+import com.example.order.entity.OrderEvent;
+import com.example.order.repository.OrderEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private OrderEventRepository repository;
+
+    private final InMemoryOutboxTransport transport = new InMemoryOutboxTransport();
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+        relay = new OutboxRelay(repository, transport, transactionTemplate, BATCH_SIZE);
+    }
+
+    @Test
+    void testRelayPending_DrainsFullBatchesInOrder() {
+        OrderEvent first = new OrderEvent(1L, OrderEvent.Type.ORDER_CREATED, Map.of(1L, -2));
+        OrderEvent second = new OrderEvent(2L, OrderEvent.Type.ORDER_CREATED, Map.of(1L, -1));
+        OrderEvent third = new OrderEvent(1L, OrderEvent.Type.ORDER_DELETED, Map.of(1L, 2));
+        when(repository.lockNextBatch(OrderEvent.Status.PENDING, Limit.of(BATCH_SIZE)))
+                .thenReturn(List.of(first, second), List.of(third));
+
+        relay.relayPending();
+
+        assertEquals(List.of(first.getEventId(), second.getEventId(), third.getEventId()),
+                transport.delivered().stream().map(StockEvent::eventId).toList());
+        assertEquals(OrderEvent.Status.PUBLISHED, first.getStatus());
+        assertNotNull(third.getPublishedAt());
+        // a short batch means the outbox is drained
+        verify(repository, times(2)).lockNextBatch(any(), any());
+    }
+
+    @Test
+    void testRelayBatch_RejectedEventIsNotRetried() {
+        OrderEvent event = new OrderEvent(1L, OrderEvent.Type.ORDER_CREATED, Map.of(1L, -50));
+        when(repository.lockNextBatch(OrderEvent.Status.PENDING, Limit.of(BATCH_SIZE))).thenReturn(List.of(event));
+        transport.setConsumer(e -> Outcome.REJECTED);
+
+        assertEquals(1, relay.relayBatch());
+        assertEquals(OrderEvent.Status.REJECTED, event.getStatus());
+    }
+
+    @Test
+    void testRelayBatch_FailedDeliveryStaysPending() {
+        OrderEvent event = new OrderEvent(1L, OrderEvent.Type.ORDER_CREATED, Map.of(1L, -2));
+        when(repository.lockNextBatch(OrderEvent.Status.PENDING, Limit.of(BATCH_SIZE))).thenReturn(List.of(event));
+        transport.setConsumer(e -> {
+            throw new IllegalStateException("product-service down");
+        });
+
+        assertEquals(0, relay.relayBatch());
+        assertEquals(OrderEvent.Status.PENDING, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertNull(event.getPublishedAt());
+    }
+}
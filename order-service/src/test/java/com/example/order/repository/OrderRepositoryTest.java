@@ -0,0 +1,91 @@
+package com.example.order.repository;
+
+import com.example.order.entity.Order;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that loading orders with their product lines costs a fixed number of
+ * SQL statements, independent of how many orders are loaded.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class OrderRepositoryTest {
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testFindPageAfter_StatementCountDoesNotGrowWithOrders() {
+        assertEquals(2, statementsToLoadPage(3));
+        assertEquals(2, statementsToLoadPage(40));
+    }
+
+    @Test
+    void testFindPageAfter_ReturnsNextPageInIdOrder() {
+        List<Long> ids = saveOrders(5);
+
+        List<Order> page = repository.findPageAfter(ids.get(1), Limit.of(2));
+
+        assertEquals(List.of(ids.get(2), ids.get(3)), page.stream().map(Order::getId).toList());
+        assertEquals(2, page.get(0).getProductQuantities().size());
+    }
+
+    @Test
+    void testFindById_LoadsProductLinesInOneStatement() {
+        Long id = saveOrders(1).get(0);
+        statistics.clear();
+
+        Order order = repository.findById(id).orElseThrow();
+        order.getProductQuantities().size();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private long statementsToLoadPage(int orderCount) {
+        repository.deleteAllInBatch();
+        saveOrders(orderCount);
+        statistics.clear();
+
+        List<Order> page = repository.findPageAfter(0L, Limit.of(100));
+        page.forEach(order -> order.getProductQuantities().size());
+
+        assertEquals(orderCount, page.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Long> saveOrders(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<Long, Integer> lines = new HashMap<>(Map.of(1L, i + 1, 2L, 1));
+            ids.add(repository.save(new Order(null, (long) i, lines)).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.order.saga;
+
+import com.example.order.entity.SagaInstance;
+import com.example.order.entity.SagaStepState;
+import com.example.order.exception.BadRequestException;
+import com.example.order.repository.SagaInstanceRepository;
+import com.example.order.repository.SagaStepStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SagaOrchestratorTest {
+
+    private static final int STEP_ATTEMPTS = 3;
+
+    @Mock
+    private SagaInstanceRepository instances;
+
+    @Mock
+    private SagaStepStateRepository steps;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    // Records what ran, in order, e.g. "a", "undo a", "completed"
+    private final List<String> log = new ArrayList<>();
+    private final List<List<SagaStep>> stages = new ArrayList<>();
+
+    private SagaDefinition definition;
+    private SagaOrchestrator orchestrator;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        SagaInstance saga = new SagaInstance("test", "ref");
+        saga.setId(1L);
+        when(instances.findById(1L)).thenReturn(Optional.of(saga));
+        when(instances.claim(eq(1L), any(), any())).thenReturn(1);
+        when(instances.updateStatus(eq(1L), any(), any(), any())).thenReturn(1);
+
+        definition = new SagaDefinition() {
+            public String type() { return "test"; }
+            public List<List<SagaStep>> stages(String referenceId) { return stages; }
+            public void onCompleted(String referenceId) { log.add("completed"); }
+            public void onCompensated(String referenceId) { log.add("compensated"); }
+        };
+        orchestrator = new SagaOrchestrator(List.of(definition), instances, steps, events, Runnable::run,
+                STEP_ATTEMPTS, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testRun_AllStepsSucceed_Completes() {
+        stages.add(List.of(step("a"), step("b")));
+        stages.add(List.of(step("c")));
+        pending("a", "b", "c");
+
+        orchestrator.run(1L);
+
+        assertEquals(List.of("a", "b", "c", "completed"), log);
+        verify(instances).updateStatus(eq(1L), eq(SagaInstance.Status.COMPLETED), any(), any());
+    }
+
+    @Test
+    void testRun_RejectedStep_CompensatesCompletedStepsInReverse() {
+        stages.add(List.of(step("a"), step("b")));
+        stages.add(List.of(rejectedStep("c")));
+        pending("a", "b", "c");
+
+        orchestrator.run(1L);
+
+        assertEquals(List.of("a", "b", "c", "undo b", "undo a", "compensated"), log);
+        verify(instances).updateStatus(eq(1L), eq(SagaInstance.Status.COMPENSATING), any(), any());
+        verify(instances).updateStatus(eq(1L), eq(SagaInstance.Status.COMPENSATED), any(), any());
+    }
+
+    @Test
+    void testRun_LeaseTakenOverDuringSteps_NeverCompensates() {
+        stages.add(List.of(step("a")));
+        stages.add(List.of(rejectedStep("b")));
+        pending("a", "b");
+        // The first claim takes the saga; by the time step a is done another instance has resumed it
+        when(instances.claim(eq(1L), any(), any())).thenReturn(1, 0);
+
+        orchestrator.run(1L);
+
+        assertEquals(List.of("a"), log);
+        verify(instances, never()).updateStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void testRun_UncertainStep_IsRetriedButNeverCompensated() {
+        AtomicInteger attempts = new AtomicInteger();
+        stages.add(List.of(step("a"), new SagaStep("b", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("read timed out");
+        }, () -> log.add("undo b"))));
+        pending("a", "b");
+
+        orchestrator.run(1L);
+
+        assertEquals(STEP_ATTEMPTS, attempts.get());
+        assertEquals(List.of("a"), log);
+        verify(instances, never()).updateStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void testRun_ResumedSagaSkipsDoneSteps() {
+        stages.add(List.of(step("a"), step("b")));
+        when(steps.findBySagaId(1L)).thenReturn(List.of(state("a", SagaStepState.Status.DONE), state("b", SagaStepState.Status.PENDING)));
+
+        orchestrator.run(1L);
+
+        assertEquals(List.of("b", "completed"), log);
+        verify(steps, never()).updateStatus(eq(1L), eq("a"), any(), any());
+        verify(steps, never()).recordAttempt(anyLong(), anyString(), any(), any());
+    }
+
+    @Test
+    void testSaturatedExecutor_DefersNewSagaButRunsStepsInline() {
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("saturated");
+        };
+        orchestrator = new SagaOrchestrator(List.of(definition), instances, steps, events, saturated,
+                STEP_ATTEMPTS, Duration.ofSeconds(30));
+        stages.add(List.of(step("a"), step("b")));
+        pending("a", "b");
+
+        // Left RUNNING for resumeStalled instead of running on the committing thread
+        orchestrator.onStarted(new SagaOrchestrator.SagaStarted(1L));
+        assertTrue(log.isEmpty());
+
+        orchestrator.run(1L);
+        assertEquals(List.of("a", "b", "completed"), log);
+    }
+
+    private SagaStep step(String name) {
+        return new SagaStep(name, () -> log.add(name), () -> log.add("undo " + name));
+    }
+
+    private SagaStep rejectedStep(String name) {
+        return new SagaStep(name, () -> {
+            log.add(name);
+            throw new BadRequestException("Not enough stock");
+        }, () -> log.add("undo " + name));
+    }
+
+    private void pending(String... names) {
+        List<SagaStepState> states = new ArrayList<>();
+        for (String name : names) {
+            states.add(state(name, SagaStepState.Status.PENDING));
+        }
+        when(steps.findBySagaId(1L)).thenReturn(states);
+    }
+
+    private static SagaStepState state(String name, SagaStepState.Status status) {
+        SagaStepState state = new SagaStepState(1L, name);
+        state.setStatus(status);
+        return state;
+    }
+}
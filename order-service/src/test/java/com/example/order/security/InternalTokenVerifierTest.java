@@ -0,0 +1,53 @@
+package com.example.order.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalTokenVerifierTest {
+
+    private static final String SECRET = "test-internal-auth-secret";
+
+    private final InternalTokenSigner signer = new InternalTokenSigner(SECRET, Duration.ofMinutes(5));
+    private final InternalTokenVerifier verifier = new InternalTokenVerifier(SECRET, 100, Duration.ofMinutes(5));
+
+    @Test
+    void testVerify_ReturnsUserAndRolesFromSignedToken() {
+        Authentication auth = verifier.verify(signer.tokenFor("admin", "ROLE_ADMIN,ROLE_USER"));
+
+        assertNotNull(auth);
+        assertTrue(auth.isAuthenticated());
+        assertEquals("admin", auth.getName());
+        assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"),
+                auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void testVerify_ReusesAuthenticationForSameToken() {
+        String token = signer.tokenFor("user", "ROLE_USER");
+
+        assertSame(verifier.verify(token), verifier.verify(token));
+    }
+
+    @Test
+    void testVerify_RejectsTamperedOrForeignTokens() {
+        String token = signer.tokenFor("user", "ROLE_USER");
+        String forged = new InternalTokenSigner("another-secret", Duration.ofMinutes(5)).tokenFor("user", "ROLE_ADMIN");
+
+        assertNull(verifier.verify("x" + token));
+        assertNull(verifier.verify(forged));
+        assertNull(verifier.verify("not-a-token"));
+    }
+
+    @Test
+    void testVerify_RejectsExpiredTokens() {
+        String expired = new InternalTokenSigner(SECRET, Duration.ZERO).tokenFor("user", "ROLE_USER");
+
+        assertNull(verifier.verify(expired));
+    }
+}
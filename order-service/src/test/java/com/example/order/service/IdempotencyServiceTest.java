@@ -0,0 +1,105 @@
+package com.example.order.service;
+
+import com.example.order.entity.IdempotencyRecord;
+import com.example.order.entity.Order;
+import com.example.order.exception.IdempotencyKeyReusedException;
+import com.example.order.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyService idempotency;
+
+    private final AtomicInteger creates = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+        idempotency = new IdempotencyService(repository, transactionTemplate, new ObjectMapper(), Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void testExecute_ReplayReturnsOriginalResponseWithoutRunningAgain() {
+        Order request = new Order(null, 1L, Map.of(1L, 2));
+
+        IdempotencyService.Result<Order> first = idempotency.execute("order-create", "k1", request, Order.class, this::create);
+        IdempotencyService.Result<Order> retry = idempotency.execute("order-create", "k1", request, Order.class, this::create);
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.response().getId(), retry.response().getId());
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    void testExecute_SameKeyWithDifferentRequestIsRefused() {
+        idempotency.execute("order-create", "k1", new Order(null, 1L, Map.of(1L, 2)), Order.class, this::create);
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotency.execute(
+                "order-create", "k1", new Order(null, 1L, Map.of(1L, 3)), Order.class, this::create));
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    void testExecute_LosingAConcurrentClaimReplaysTheWinner() throws Exception {
+        Order request = new Order(null, 1L, Map.of(1L, 2));
+        Order winner = new Order(42L, 1L, Map.of(1L, 2));
+        ObjectMapper objectMapper = new ObjectMapper();
+        IdempotencyRecord record = new IdempotencyRecord("order-create::k1",
+                sha256Hex(objectMapper.writeValueAsString(request)), Instant.now().plusSeconds(60));
+        record.setResponseBody(objectMapper.writeValueAsString(winner));
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(repository.findById("order-create::k1")).thenReturn(Optional.empty(), Optional.of(record));
+
+        IdempotencyService.Result<Order> result = idempotency.execute("order-create", "k1", request, Order.class, this::create);
+
+        assertTrue(result.replayed());
+        assertEquals(42L, result.response().getId());
+        assertEquals(0, creates.get());
+    }
+
+    @Test
+    void testExecute_WithoutKeyJustRuns() {
+        idempotency.execute("order-create", null, new Order(null, 1L, Map.of(1L, 2)), Order.class, this::create);
+        idempotency.execute("order-create", null, new Order(null, 1L, Map.of(1L, 2)), Order.class, this::create);
+
+        assertEquals(2, creates.get());
+        verifyNoInteractions(repository);
+    }
+
+    private Order create() {
+        return new Order((long) creates.incrementAndGet(), 1L, Map.of(1L, 2));
+    }
+
+    private static String sha256Hex(String value) throws Exception {
+        return HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
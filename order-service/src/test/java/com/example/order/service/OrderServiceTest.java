@@ -1,14 +1,27 @@
 package com.example.order.service;
 
+import com.example.order.client.CustomerClient;
+import com.example.order.client.ProductClient;
 import com.example.order.dto.OrderDetailResponse;
 import com.example.order.entity.Order;
+import com.example.order.entity.OrderEvent;
+import com.example.order.exception.BadRequestException;
+import com.example.order.repository.OrderEventRepository;
 import com.example.order.repository.OrderRepository;
+import com.example.order.saga.SagaOrchestrator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -19,14 +32,26 @@ class OrderServiceTest {
     private OrderRepository repository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private OrderEventRepository eventRepository;
+
+    @Mock
+    private SagaOrchestrator sagas;
+
+    @Mock
+    private CustomerClient customerClient;
+
+    @Mock
+    private ProductClient productClient;
+
+    private final TransactionTemplate transactionTemplate =
+            new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
 
-    @InjectMocks
     private OrderService service;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        service = new OrderService(repository, eventRepository, sagas, customerClient, productClient, transactionTemplate, Runnable::run, Duration.ofSeconds(1));
     }
 
     @Test
@@ -40,11 +65,11 @@ class OrderServiceTest {
         when(repository.findById(1L)).thenReturn(Optional.of(order));
 
         // Mock calls to customer & product microservices
-        when(restTemplate.getForObject("http://customer-service/customers/1", Map.class))
-                .thenReturn(Map.of("name", "Alice Johnson"));
+        when(customerClient.getCustomerNames(Set.of(1L)))
+                .thenReturn(Map.of(1L, "Alice Johnson"));
 
-        when(restTemplate.getForObject("http://product-service/products/1", Map.class))
-                .thenReturn(Map.of("name", "Laptop"));
+        when(productClient.getProductNames(Set.of(1L)))
+                .thenReturn(Map.of(1L, "Laptop"));
 
         // Execute
         OrderDetailResponse response = service.getOrderById(1L);
@@ -62,4 +87,198 @@ class OrderServiceTest {
         when(repository.findById(99L)).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class, () -> service.getOrderById(99L));
     }
+
+    @Test
+    void testGetOrdersPage_ResolvesDistinctIdsInOneBatch() {
+        Order first = new Order(1L, 10L, Map.of(1L, 2, 2L, 1));
+        Order second = new Order(2L, 10L, Map.of(2L, 5, 3L, 1));
+        Order third = new Order(3L, 11L, Map.of(1L, 1));
+
+        when(repository.findPageAfter(0L, Limit.of(100))).thenReturn(List.of(first, second, third));
+        when(customerClient.getCustomerNames(Set.of(10L, 11L)))
+                .thenReturn(Map.of(10L, "Alice"));
+        when(productClient.getProductNames(Set.of(1L, 2L, 3L)))
+                .thenReturn(Map.of(1L, "Laptop", 2L, "Phone"));
+
+        List<OrderDetailResponse> responses = service.getOrdersPage(0L, 100);
+
+        assertEquals(3, responses.size());
+        assertEquals("Alice", responses.get(0).getCustomerName());
+        assertEquals("Unknown Customer", responses.get(2).getCustomerName());
+        assertTrue(responses.get(1).getProducts().stream()
+                .anyMatch(p -> p.getProductId() == 3L && p.getProductName().equals("Unavailable Product")));
+
+        verify(customerClient, times(1)).getCustomerNames(any());
+        verify(productClient, times(1)).getProductNames(any());
+    }
+
+    @Test
+    void testGetOrderById_FallsBackWhenLookupExceedsDeadline() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            service = new OrderService(repository, eventRepository, sagas, customerClient, productClient, transactionTemplate, executor, Duration.ofMillis(100));
+
+            Order order = new Order(1L, 1L, Map.of(1L, 2));
+            when(repository.findById(1L)).thenReturn(Optional.of(order));
+            when(customerClient.getCustomerNames(Set.of(1L))).thenAnswer(invocation -> {
+                Thread.sleep(2000);
+                return Map.of(1L, "Alice Johnson");
+            });
+            when(productClient.getProductNames(Set.of(1L))).thenReturn(Map.of(1L, "Laptop"));
+
+            long start = System.nanoTime();
+            OrderDetailResponse response = service.getOrderById(1L);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals("Unknown Customer", response.getCustomerName());
+            assertEquals("Laptop", response.getProducts().get(0).getProductName());
+            assertTrue(elapsedMillis < 1500, "enrichment should not wait for the slow lookup");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetOrderById_FallsBackWhenEnrichmentExecutorIsSaturated() {
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("saturated");
+        };
+        service = new OrderService(repository, eventRepository, sagas, customerClient, productClient, transactionTemplate, saturated, Duration.ofSeconds(1));
+        when(repository.findById(1L)).thenReturn(Optional.of(new Order(1L, 1L, Map.of(1L, 2))));
+
+        OrderDetailResponse response = service.getOrderById(1L);
+
+        assertEquals("Unknown Customer", response.getCustomerName());
+        assertEquals("Unavailable Product", response.getProducts().get(0).getProductName());
+        verify(customerClient, never()).getCustomerNames(any());
+        verify(productClient, never()).getProductNames(any());
+    }
+
+    @Test
+    void testCreateOrder_SavesPendingOrderAndStartsPlacementSaga() {
+        Order order = new Order(null, 1L, Map.of(1L, 2, 2L, 3));
+        when(repository.save(order)).thenAnswer(invocation -> {
+            order.setId(7L);
+            return order;
+        });
+
+        Order saved = service.createOrder(order);
+
+        assertEquals(Order.Status.PENDING, saved.getStatus());
+        verify(sagas).start(OrderPlacementSaga.TYPE, "7");
+        verify(eventRepository, never()).save(any());
+    }
+
+    @Test
+    void testDeleteOrder_RejectedWhilePending() {
+        Order order = new Order(5L, 1L, Map.of(1L, 2));
+        order.setStatus(Order.Status.PENDING);
+        when(repository.findById(5L)).thenReturn(Optional.of(order));
+
+        assertThrows(BadRequestException.class, () -> service.deleteOrder(5L));
+        verify(repository, never()).delete(any());
+    }
+
+    @Test
+    void testDeleteOrder_CancelledOrderReturnsNoStock() {
+        Order order = new Order(5L, 1L, Map.of(1L, 2));
+        order.setStatus(Order.Status.CANCELLED);
+        when(repository.findById(5L)).thenReturn(Optional.of(order));
+
+        service.deleteOrder(5L);
+
+        verify(repository).delete(order);
+        verify(eventRepository, never()).save(any());
+    }
+
+    @Test
+    void testDeleteOrder_QueuesStockRelease() {
+        Order order = new Order(5L, 1L, Map.of(1L, 2));
+        when(repository.findById(5L)).thenReturn(Optional.of(order));
+
+        service.deleteOrder(5L);
+
+        verify(repository).delete(order);
+        OrderEvent event = savedEvent();
+        assertEquals(OrderEvent.Type.ORDER_DELETED, event.getType());
+        assertEquals(Map.of(1L, 2), event.getStockChanges());
+    }
+
+    @Test
+    void testUpdateOrder_QueuesOnlyChangedLinesInOneEvent() {
+        Order existing = new Order(5L, 1L, new HashMap<>(Map.of(1L, 2, 2L, 3, 3L, 1)));
+        Order updated = new Order(null, 1L, Map.of(1L, 2, 2L, 1, 4L, 6));
+        when(repository.findById(5L)).thenReturn(Optional.of(existing));
+        when(repository.save(existing)).thenReturn(existing);
+
+        service.updateOrder(5L, updated);
+
+        // product 1 unchanged, 2 shrinks by 2, 3 removed, 4 added
+        OrderEvent event = savedEvent();
+        assertEquals(OrderEvent.Type.ORDER_UPDATED, event.getType());
+        assertEquals(Map.of(2L, 2, 3L, 1), event.getStockChanges());
+        // The added line is reserved synchronously, before the update commits
+        verify(productClient).reserveStock(eq(Map.of(4L, 6)), startsWith("order-5:update:"));
+    }
+
+    @Test
+    void testUpdateOrder_RejectedIncreaseFailsAndDeleteReturnsOnlyTakenStock() {
+        Order existing = new Order(5L, 1L, new HashMap<>(Map.of(1L, 2)));
+        when(repository.findById(5L)).thenReturn(Optional.of(existing));
+        doThrow(new BadRequestException("Not enough stock for product ID 1"))
+                .when(productClient).reserveStock(eq(Map.of(1L, 8)), anyString());
+
+        assertThrows(BadRequestException.class, () -> service.updateOrder(5L, new Order(null, 1L, Map.of(1L, 10))));
+        verify(repository, never()).save(any());
+        assertEquals(Map.of(1L, 2), existing.getProductQuantities());
+
+        service.deleteOrder(5L);
+
+        OrderEvent event = savedEvent();
+        assertEquals(OrderEvent.Type.ORDER_DELETED, event.getType());
+        assertEquals(Map.of(1L, 2), event.getStockChanges());
+    }
+
+    @Test
+    void testUpdateOrder_NoQuantityChange_SkipsStockEvent() {
+        Order existing = new Order(5L, 1L, new HashMap<>(Map.of(1L, 2)));
+        Order updated = new Order(null, 2L, Map.of(1L, 2));
+        when(repository.findById(5L)).thenReturn(Optional.of(existing));
+        when(repository.save(existing)).thenReturn(existing);
+
+        service.updateOrder(5L, updated);
+
+        verify(eventRepository, never()).save(any());
+        assertEquals(2L, existing.getCustomerId());
+    }
+
+    @Test
+    void testGetOrdersPage_RejectsOversizedLimit() {
+        assertThrows(BadRequestException.class, () -> service.getOrdersPage(0L, OrderService.MAX_PAGE_SIZE + 1));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testForEachOrderBatch_WalksKeysetPages() {
+        Order first = new Order(1L, 10L, Map.of(1L, 1));
+        Order second = new Order(2L, 10L, Map.of(1L, 1));
+        Order third = new Order(7L, 10L, Map.of(1L, 1));
+        when(repository.findPageAfter(0L, Limit.of(2))).thenReturn(List.of(first, second));
+        when(repository.findPageAfter(2L, Limit.of(2))).thenReturn(List.of(third));
+        when(customerClient.getCustomerNames(any())).thenReturn(Map.of(10L, "Alice"));
+        when(productClient.getProductNames(any())).thenReturn(Map.of(1L, "Laptop"));
+
+        List<List<Long>> batches = new ArrayList<>();
+        service.forEachOrderBatch(2, batch -> batches.add(batch.stream().map(OrderDetailResponse::getOrderId).toList()));
+
+        assertEquals(List.of(List.of(1L, 2L), List.of(7L)), batches);
+        // short last page ends the walk without an extra query
+        verify(repository, times(2)).findPageAfter(anyLong(), any());
+    }
+
+    private OrderEvent savedEvent() {
+        ArgumentCaptor<OrderEvent> captor = ArgumentCaptor.forClass(OrderEvent.class);
+        verify(eventRepository, times(1)).save(captor.capture());
+        return captor.getValue();
+    }
 }
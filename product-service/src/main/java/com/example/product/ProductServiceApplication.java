@@ -3,9 +3,11 @@ package com.example.product;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling // idempotency key purge, striped stock reconcile, stock ledger flush
 public class ProductServiceApplication {
 
 	public static void main(String[] args) {
@@ -1,6 +1,7 @@
 package com.example.product.config;
 
 import com.example.product.security.HeaderAuthenticationFilter;
+import com.example.product.security.InternalTokenVerifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,10 +11,10 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, InternalTokenVerifier tokenVerifier) throws Exception {
         http
             .csrf(csrf -> csrf.disable()) // Disable CSRF for APIs
-            .addFilterBefore(new HeaderAuthenticationFilter(),
+            .addFilterBefore(new HeaderAuthenticationFilter(tokenVerifier),
                     org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(auth -> auth
                 // Allow only ADMIN to modify products
@@ -21,7 +22,7 @@ public class SecurityConfig {
                 .requestMatchers("/products/add", "/products/update/**", "/products/delete/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
-            .httpBasic(httpBasic -> httpBasic.disable()); // We use gateway headers, not HTTP Basic
+            .httpBasic(httpBasic -> httpBasic.disable()); // We use gateway-signed tokens, not HTTP Basic
 
         return http.build();
     }
@@ -1,29 +1,96 @@
 package com.example.product.controller;
 
+import com.example.product.dto.StockEvent;
+import com.example.product.dto.StockEventResult;
 import com.example.product.entity.Product;
+import com.example.product.exception.BadRequestException;
+import com.example.product.service.IdempotencyService;
 import com.example.product.service.ProductService;
+import com.example.product.service.StockEventConsumer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
 
     private final ProductService service;
+    private final StockEventConsumer stockEventConsumer;
+    private final IdempotencyService idempotency;
+    private final ObjectMapper objectMapper;
+    private final CacheControl itemCacheControl;
 
-    public ProductController(ProductService service) {
+    public ProductController(ProductService service, StockEventConsumer stockEventConsumer,
+                             IdempotencyService idempotency, ObjectMapper objectMapper,
+                             @Value("${product.http.item-max-age:10s}") Duration itemMaxAge) {
         this.service = service;
+        this.stockEventConsumer = stockEventConsumer;
+        this.idempotency = idempotency;
+        this.objectMapper = objectMapper;
+        this.itemCacheControl = CacheControl.maxAge(itemMaxAge).cachePublic();
     }
 
+    // Keyset pagination: a full page carries a Link header (rel="next") with the afterId of the next one
     @GetMapping
-    public List<Product> getAllProducts() {
-        return service.getAllProducts();
+    public ResponseEntity<List<Product>> getAllProducts(@RequestParam(defaultValue = "0") long afterId,
+                                                        @RequestParam(defaultValue = "100") int limit) {
+        List<Product> page = service.getProductsPage(afterId, limit);
+        if (page.size() < limit) {
+            return ResponseEntity.ok(page);
+        }
+        // Relative to the request URL, so it also resolves behind the gateway's path prefix
+        String next = "<?afterId=" + page.get(page.size() - 1).getId() + "&limit=" + limit + ">; rel=\"next\"";
+        return ResponseEntity.ok().header(HttpHeaders.LINK, next).body(page);
+    }
+
+    // Every product as newline-delimited JSON, streamed straight from a database cursor
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = out -> service.exportProducts(entity -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(entity));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Served as JSON by default, or as CBOR for internal callers sending Accept: application/cbor
+    @GetMapping("/batch")
+    public List<Product> getProductsByIds(@RequestParam List<Long> ids) {
+        return service.getProductsByIds(ids);
+    }
+
+    // Same as GET /batch, for id sets too large for a query string
+    @PostMapping("/batch")
+    public List<Product> getProductsByIdsInBody(@RequestBody List<Long> ids) {
+        return service.getProductsByIds(ids);
     }
 
+    // Single products may be cached briefly by the gateway (and clients); writes through the gateway evict them.
+    // The ETag is the entity version plus the stock served, so a matching If-None-Match gets a bodyless 304.
     @GetMapping("/{id}")
-    public Product getProductById(@PathVariable Long id) {
-        return service.getProductById(id);
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        Product product = service.getProductById(id);
+        if (request.checkNotModified(etag(product))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(itemCacheControl).body(product);
     }
 
     @PostMapping
@@ -31,24 +98,91 @@ public class ProductController {
         return service.createProduct(product);
     }
     
+    // Stock writes below accept an Idempotency-Key: a retry with the same key is answered without changing stock again
     @PutMapping("/{id}/stock")
-    public void updateStock(@PathVariable Long id, @RequestParam int change) {
-        if (change == 0) return;
+    public ResponseEntity<Void> updateStock(@PathVariable Long id, @RequestParam int change,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotent("stock-update", idempotencyKey, List.of(id, change), () -> {
+            if (change < 0) {
+                service.decreaseStock(id, Math.abs(change));
+            } else if (change > 0) {
+                service.increaseStock(id, change);
+            }
+        });
+    }
 
-        if (change < 0) {
-            service.decreaseStock(id, Math.abs(change));
-        } else {
-            service.increaseStock(id, change);
-        }
+    // Body: { "<productId>": <quantity>, ... } — applied all-or-nothing
+    @PostMapping("/stock/reserve")
+    public ResponseEntity<Void> reserveStock(@RequestBody Map<Long, Integer> quantities,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotent("stock-reserve", idempotencyKey, quantities, () -> service.reserveStock(quantities));
+    }
+
+    @PostMapping("/stock/release")
+    public ResponseEntity<Void> releaseStock(@RequestBody Map<Long, Integer> quantities,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotent("stock-release", idempotencyKey, quantities, () -> service.releaseStock(quantities));
+    }
+
+    // Body: { "<productId>": <signed change>, ... } — negative takes stock, positive returns it
+    @PostMapping("/stock/adjust")
+    public ResponseEntity<Void> adjustStock(@RequestBody Map<Long, Integer> changes,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotent("stock-adjust", idempotencyKey, changes, () -> service.adjustStock(changes));
     }
 
+    // With If-Match, the update only applies if the product is still at that version (412 otherwise)
     @PutMapping("/{id}")
-    public Product updateProduct(@PathVariable Long id, @RequestBody Product product) {
-        return service.updateProduct(id, product);
+    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Product saved = service.updateProduct(id, product, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(saved)).body(saved);
+    }
+
+    // Spread a hot product's stock over N stripe rows so concurrent orders stop queueing on one lock; count=1 undoes it
+    @PutMapping("/{id}/stock/stripes")
+    public Product setStockStripes(@PathVariable Long id, @RequestParam int count) {
+        return service.setStockStripes(id, count);
+    }
+
+    // Stock events relayed from order-service's outbox; one result per event, in order
+    @PostMapping("/stock/events")
+    public List<StockEventResult> applyStockEvents(@RequestBody List<StockEvent> events) {
+        return stockEventConsumer.apply(events);
     }
 
     @DeleteMapping("/{id}")
     public void deleteProduct(@PathVariable Long id) {
         service.deleteProduct(id);
     }
+
+    // Runs a stock write at most once per Idempotency-Key; replays are marked with Idempotent-Replayed: true
+    private ResponseEntity<Void> idempotent(String scope, String key, Object request, Runnable write) {
+        IdempotencyService.Result<Void> result = idempotency.execute(scope, key, request, Void.class, () -> {
+            write.run();
+            return null;
+        });
+        return result.replayed()
+                ? ResponseEntity.ok().header(IdempotencyService.REPLAYED_HEADER, "true").build()
+                : ResponseEntity.ok().build();
+    }
+
+    // Strong ETag of a product as served, e.g. "3-42": version and stock. The stock of a striped product
+    // (or any product, with the stock ledger) is live and moves ahead of the version until the next snapshot.
+    private static String etag(Product product) {
+        return "\"" + product.getVersion() + "-" + product.getStock() + "\"";
+    }
+
+    // The version a PUT's If-Match asks for (the part of the ETag before '-'); null when absent or "*"
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim().replace("\"", "");
+        try {
+            return Long.parseLong(etag.contains("-") ? etag.substring(0, etag.indexOf('-')) : etag);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("If-Match must be a single ETag returned by this service");
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.product.dto;
+
+import java.util.Map;
+
+/**
+ * A stock change published by order-service through its outbox.
+ * {@code stockChanges} is signed per product: negative takes stock, positive returns it.
+ * {@code eventId} is unique per event, so redelivered events can be recognised.
+ */
+public record StockEvent(String eventId, Long orderId, Map<Long, Integer> stockChanges) {
+}
@@ -0,0 +1,16 @@
+package com.example.product.dto;
+
+/**
+ * What happened to one {@link StockEvent}.
+ */
+public record StockEventResult(String eventId, Outcome outcome) {
+
+    public enum Outcome {
+        // Stock was changed
+        APPLIED,
+        // Seen before; nothing was changed this time
+        DUPLICATE,
+        // Could not be applied (e.g. not enough stock); will not be retried
+        REJECTED
+    }
+}
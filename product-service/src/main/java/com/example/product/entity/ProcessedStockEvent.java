@@ -0,0 +1,39 @@
+package com.example.product.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Marks a stock event as handled, so a redelivery is not applied twice.
+ * Written in the same transaction as the stock change it records.
+ */
+@Entity
+@Table(name = "processed_stock_events")
+public class ProcessedStockEvent {
+
+    @Id
+    @Column(length = 36)
+    private String eventId;
+
+    private Long orderId;
+
+    // False when the event was rejected rather than applied
+    private boolean applied;
+
+    private Instant processedAt;
+
+    public ProcessedStockEvent() {}
+
+    public ProcessedStockEvent(String eventId, Long orderId, boolean applied) {
+        this.eventId = eventId;
+        this.orderId = orderId;
+        this.applied = applied;
+        this.processedAt = Instant.now();
+    }
+
+    public String getEventId() { return eventId; }
+    public Long getOrderId() { return orderId; }
+    public boolean isApplied() { return applied; }
+    public Instant getProcessedAt() { return processedAt; }
+}
@@ -18,6 +18,15 @@ public class Product {
 
     private Integer stock; // New field
 
+    // Hot products can spread their stock over several product_stock_stripes rows (null = not striped).
+    // Stock is then the sum of the stripes, and the column above a periodically reconciled snapshot.
+    private Integer stockStripes;
+
+    // Bumped on every update; exposed to clients as the ETag
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     // ----- Constructors -----
     public Product() {}
 
@@ -37,6 +46,14 @@ public class Product {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -68,4 +85,12 @@ public class Product {
     public void setStock(Integer stock) {
         this.stock = stock;
     }
+
+    public Integer getStockStripes() {
+        return stockStripes;
+    }
+
+    public void setStockStripes(Integer stockStripes) {
+        this.stockStripes = stockStripes;
+    }
 }
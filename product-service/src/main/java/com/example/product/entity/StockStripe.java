@@ -0,0 +1,54 @@
+package com.example.product.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One slice of a striped product's stock. Concurrent orders for the same product take from
+ * different stripes, so they lock different rows instead of queueing on the product row.
+ */
+@Entity
+@Table(name = "product_stock_stripes", uniqueConstraints = @UniqueConstraint(columnNames = {"productId", "stripe"}))
+public class StockStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    // 0 .. stockStripes - 1
+    @Column(nullable = false)
+    private int stripe;
+
+    @Column(nullable = false)
+    private int stock;
+
+    public StockStripe() {}
+
+    public StockStripe(Long productId, int stripe, int stock) {
+        this.productId = productId;
+        this.stripe = stripe;
+        this.stock = stock;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int stock) {
+        this.stock = stock;
+    }
+}
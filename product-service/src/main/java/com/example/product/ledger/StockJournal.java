@@ -0,0 +1,285 @@
+package com.example.product.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of stock levels: one fixed-size record (product id, stock, CRC32) per change,
+ * written to numbered segment files in one directory.
+ * <p>
+ * Appending only copies the record into a buffer. {@link #sync(long)} writes out and fsyncs everything
+ * buffered so far, so callers that wait for durability at the same time share a single fsync (group commit).
+ * {@link #rotate()} starts a new segment, so older ones can be deleted once their changes are safe elsewhere.
+ * <p>
+ * A failed write leaves the segment in an unknown state (part of a record may be on disk), so the journal
+ * then stops: every later sync, rotate or close fails with that error instead of skipping the lost records.
+ */
+final class StockJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockJournal.class);
+
+    static final int RECORD_SIZE = 16;
+    private static final String SUFFIX = ".journal";
+
+    /**
+     * Opens a new segment file for writing.
+     */
+    interface SegmentOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+    private final SegmentOpener opener;
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+
+    // Guards buffer and appended; held only for a memory copy
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Guards channel and segment; held across write + fsync
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(256 * RECORD_SIZE);
+    private long appended;
+    private volatile long durable;
+    // First write/fsync error; once set, nothing appended after `durable` can be made durable
+    private volatile IOException failure;
+    private FileChannel channel;
+    private long segment;
+
+    /**
+     * Take exclusive use of {@code directory}: a second process pointed at it fails here instead of
+     * interleaving its records with ours.
+     */
+    StockJournal(Path directory, boolean fsync) throws IOException {
+        this(directory, fsync, file -> FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    StockJournal(Path directory, boolean fsync, SegmentOpener opener) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.fsync = fsync;
+        this.opener = opener;
+        this.lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        this.directoryLock = lock;
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Stock journal " + directory + " is in use by another process");
+        }
+    }
+
+    /**
+     * Existing segment files, oldest first.
+     */
+    List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    /**
+     * Feed every record of the existing segments, oldest first, to {@code listener}.
+     * A segment is read up to its first torn or corrupt record (e.g. a write cut short by a crash).
+     * Returns the number of records replayed.
+     */
+    long replay(StockTable.Listener listener) throws IOException {
+        long records = 0;
+        CRC32 check = new CRC32();
+        for (Path file : segments()) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (data.remaining() >= RECORD_SIZE) {
+                check.reset();
+                check.update(data.array(), data.position(), RECORD_SIZE - Integer.BYTES);
+                long id = data.getLong();
+                int stock = data.getInt();
+                if (data.getInt() != (int) check.getValue()) {
+                    logger.warn("Stock journal {} is corrupt at byte {}; ignoring the rest of it", file, data.position() - RECORD_SIZE);
+                    break;
+                }
+                listener.changed(id, stock);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Start writing to a fresh segment, after any existing ones.
+     */
+    void open() throws IOException {
+        syncLock.lock();
+        try {
+            List<Path> existing = segments();
+            segment = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1));
+            channel = openSegment(++segment);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Buffer one record. Not durable until a {@link #sync(long)} covering {@link #position()} returns.
+     */
+    void append(long id, int stock) {
+        appendLock.lock();
+        try {
+            if (buffer.remaining() < RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                larger.put(buffer.flip());
+                buffer = larger;
+            }
+            int start = buffer.position();
+            buffer.putLong(id).putInt(stock);
+            crc.reset();
+            crc.update(buffer.array(), start, RECORD_SIZE - Integer.BYTES);
+            buffer.putInt((int) crc.getValue());
+            appended++;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Number of records appended so far.
+     */
+    long position() {
+        appendLock.lock();
+        try {
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Return once the first {@code position} records are written (and fsynced, unless disabled).
+     * Whoever gets the sync lock first writes out everyone's buffered records; the rest find them durable.
+     * Throws if they cannot be, including when an earlier write already failed.
+     */
+    void sync(long position) {
+        if (durable >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable < position) {
+                writeBuffered();
+            }
+            if (durable < position) {
+                throw new IllegalStateException("Stock journal is durable up to record " + durable + ", not " + position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the stock journal", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Make everything appended so far durable in the current segment, then switch to a new one.
+     * Returns the finished segment.
+     */
+    Path rotate() throws IOException {
+        syncLock.lock();
+        try {
+            writeBuffered();
+            channel.close();
+            Path finished = segmentPath(segment);
+            channel = openSegment(++segment);
+            return finished;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            if (channel != null) {
+                try {
+                    writeBuffered();
+                } finally {
+                    channel.close();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+            directoryLock.release();
+            lockChannel.close();
+        }
+    }
+
+    // Caller holds syncLock
+    private void writeBuffered() throws IOException {
+        if (failure != null) {
+            throw new IOException("Stock journal stopped after an earlier write failed", failure);
+        }
+        ByteBuffer pending;
+        long target;
+        appendLock.lock();
+        try {
+            if (buffer.position() == 0) {
+                return;
+            }
+            pending = buffer.flip();
+            buffer = ByteBuffer.allocate(pending.capacity());
+            target = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        long start = channel.position();
+        try {
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // Cut off what made it to disk, so a replay cannot resurrect changes that are about to roll back
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            failure = e;
+            logger.error("Stock journal write failed; records after {} are lost and further writes are refused", durable, e);
+            throw e;
+        }
+        durable = target;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return opener.open(segmentPath(number));
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%020d%s", number, SUFFIX));
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.product.ledger;
+
+import com.example.product.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in (product.stock-ledger.enabled) in-memory home of every product's stock. Reservations are a
+ * compare-and-set on the {@code available} {@link StockTable}, so they never wait on MySQL. Just before the
+ * transaction commits, its changes reach the {@code committed} table, which journals them, and the
+ * transaction waits for the journal's group fsync. A transaction that rolls back never touches the
+ * committed table or the journal, so only committed stock is ever persisted.
+ * <p>
+ * The products table catches up every flush interval, after which the journal segments it covers are
+ * deleted. On startup stock is loaded from the table and whatever journal is left is replayed on top.
+ * The ledger is authoritative, so it assumes a single product-service instance owns stock writes.
+ */
+@Service
+public class StockLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    public enum Outcome { APPLIED, INSUFFICIENT, MISSING }
+
+    private final ProductRepository repository;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final Path directory;
+    private final boolean fsync;
+    private final int segments;
+    private final int flushBatchSize;
+
+    // Products changed since they were last written to the table
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Finished journal segments whose changes are not yet known to be in the table
+    private final List<Path> unflushed = new ArrayList<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // What reservations check against: committed stock minus (or plus) changes of open transactions
+    private StockTable available;
+    // Stock as of the last commit; the only table that is journaled and flushed
+    private StockTable committed;
+    private StockJournal journal;
+
+    public StockLedger(ProductRepository repository,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${product.stock-ledger.enabled:false}") boolean enabled,
+                       @Value("${product.stock-ledger.dir:./data/stock-ledger}") Path directory,
+                       @Value("${product.stock-ledger.fsync:true}") boolean fsync,
+                       @Value("${product.stock-ledger.segments:64}") int segments,
+                       @Value("${product.stock-ledger.flush-batch-size:500}") int flushBatchSize) {
+        this.repository = repository;
+        this.transaction = transactionTemplate;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segments = segments;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Load stock from the products table, replay the journal on top and write the result back,
+     * before the service takes any request.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        available = new StockTable(segments, (id, stock) -> { });
+        committed = new StockTable(segments, this::journal);
+        journal = new StockJournal(directory, fsync);
+
+        transaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = repository.streamStock()) {
+                rows.forEach(row -> load((Long) row[0], (Integer) row[1]));
+            }
+        });
+        long replayed = journal.replay((id, stock) -> {
+            load(id, stock);
+            dirty.add(id);
+        });
+        unflushed.addAll(journal.segments());
+        journal.open();
+        flush();
+        logger.info("Stock ledger holds {} products ({} journal records replayed)", committed.size(), replayed);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        journal.close();
+    }
+
+    /**
+     * Committed stock of a product, or null if the ledger does not know it.
+     */
+    public Integer stockOf(Long productId) {
+        int stock = committed.get(productId);
+        return stock < 0 ? null : stock;
+    }
+
+    /**
+     * Take {@code quantity} units if that many are available.
+     */
+    public Outcome take(Long productId, int quantity) {
+        int result = available.take(productId, quantity);
+        if (result == StockTable.MISSING && loadFromTable(productId)) {
+            result = available.take(productId, quantity);
+        }
+        if (result == StockTable.MISSING) {
+            return Outcome.MISSING;
+        }
+        if (result == StockTable.INSUFFICIENT) {
+            return Outcome.INSUFFICIENT;
+        }
+        record(new Change(productId, Change.Kind.ADJUST, -quantity));
+        return Outcome.APPLIED;
+    }
+
+    /**
+     * Return {@code quantity} units.
+     */
+    public Outcome add(Long productId, int quantity) {
+        int result = available.add(productId, quantity);
+        if (result == StockTable.MISSING && loadFromTable(productId)) {
+            result = available.add(productId, quantity);
+        }
+        if (result == StockTable.MISSING) {
+            return Outcome.MISSING;
+        }
+        record(new Change(productId, Change.Kind.ADJUST, quantity));
+        return Outcome.APPLIED;
+    }
+
+    /**
+     * Set a product's stock outright, e.g. when it is created or edited. An edit replaces the committed level
+     * when its transaction commits, and available stock moves by the same amount, so reservations still open
+     * on the product count against the new level whether they later commit or roll back.
+     * Returns {@link Outcome#INSUFFICIENT} if open reservations already hold more than {@code stock}.
+     */
+    public Outcome set(Long productId, int stock) {
+        int current = available.get(productId);
+        if (current == StockTable.MISSING) {
+            available.put(productId, stock);
+            record(new Change(productId, Change.Kind.CREATE, stock));
+            return Outcome.APPLIED;
+        }
+        if (stock < committed.get(productId) - current) {
+            return Outcome.INSUFFICIENT;
+        }
+        record(new Change(productId, Change.Kind.RESET, stock));
+        return Outcome.APPLIED;
+    }
+
+    /**
+     * Forget a deleted product, once the deleting transaction (if any) has committed.
+     */
+    public void remove(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            forget(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                forget(productId);
+            }
+        });
+    }
+
+    /**
+     * Write changed stock to the products table and delete the journal segments that are now covered.
+     * A failed flush keeps its segments and retries the same products next time. Once the journal has
+     * stopped after a write failure, the table still catches up but every segment is kept for the restart.
+     */
+    @Scheduled(fixedDelayString = "${product.stock-ledger.flush-interval:1s}")
+    public void flush() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            // Every record in the finished segment was journaled after its product was marked dirty,
+            // so the drain below covers it
+            boolean rotated = rotateJournal();
+            List<Long> batch = new ArrayList<>(flushBatchSize);
+            for (Long id : dirty) {
+                dirty.remove(id);
+                batch.add(id);
+                if (batch.size() == flushBatchSize && !writeBatch(batch)) {
+                    return;
+                }
+            }
+            if (!batch.isEmpty() && !writeBatch(batch)) {
+                return;
+            }
+            if (!rotated) {
+                return;
+            }
+            for (Path segment : unflushed) {
+                Files.deleteIfExists(segment);
+            }
+            unflushed.clear();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean rotateJournal() {
+        try {
+            unflushed.add(journal.rotate());
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not rotate the stock journal, keeping its segments: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean writeBatch(List<Long> batch) {
+        try {
+            transaction.executeWithoutResult(status -> {
+                for (Long id : batch) {
+                    int stock = committed.get(id);
+                    if (stock >= 0) {
+                        repository.updateStockSnapshot(id, stock);
+                    }
+                }
+            });
+            batch.clear();
+            return true;
+        } catch (RuntimeException e) {
+            dirty.addAll(batch);
+            logger.warn("Could not write {} stock levels to the products table: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Called under the product's segment lock in the committed table, so journal order matches commit order
+    private void journal(long id, int stock) {
+        dirty.add(id);
+        journal.append(id, stock);
+    }
+
+    /**
+     * Commit a change already applied to the available table: right away without a transaction,
+     * otherwise as part of the surrounding transaction's commit.
+     */
+    private void record(Change change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(change);
+        } else {
+            try {
+                change.beforeCommit(false);
+            } catch (RuntimeException e) {
+                change.afterCompletion(TransactionSynchronization.STATUS_UNKNOWN);
+                throw e;
+            }
+        }
+    }
+
+    private void forget(Long productId) {
+        available.remove(productId);
+        committed.remove(productId);
+        journal.sync(journal.position());
+    }
+
+    private void load(long id, int stock) {
+        available.load(id, stock);
+        committed.load(id, stock);
+    }
+
+    // A product the ledger has not seen yet (e.g. inserted behind the service's back) starts from the table
+    private boolean loadFromTable(Long productId) {
+        return repository.findStockById(productId)
+                .map(stock -> {
+                    available.putIfAbsent(productId, stock);
+                    committed.putIfAbsent(productId, stock);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * One change of a product's stock: its creation, a delta, or a reset to an absolute level. Creations and
+     * deltas apply to the available table right away, a reset only at commit. The change is journaled and made
+     * durable just before its transaction commits; if the transaction does not commit, it is taken back out of
+     * the available table and, if it got that far, out of the committed table and the journal too.
+     */
+    private final class Change implements TransactionSynchronization {
+
+        enum Kind { CREATE, ADJUST, RESET }
+
+        private final Long productId;
+        private final Kind kind;
+        private final int amount;
+        // What a reset moved both tables by
+        private int delta;
+        private boolean journaled;
+
+        Change(Long productId, Kind kind, int amount) {
+            this.productId = productId;
+            this.kind = kind;
+            this.amount = amount;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            switch (kind) {
+                case CREATE -> committed.put(productId, amount);
+                // A no-op if the product was deleted meanwhile
+                case ADJUST -> committed.add(productId, amount);
+                case RESET -> reset();
+            }
+            journaled = true;
+            journal.sync(journal.position());
+        }
+
+        private void reset() {
+            int previous = committed.get(productId);
+            if (previous == StockTable.MISSING) {
+                return; // deleted meanwhile
+            }
+            int change = amount - previous;
+            int result = change < 0 ? available.take(productId, -change) : available.add(productId, change);
+            if (result == StockTable.INSUFFICIENT) {
+                throw new IllegalStateException("Stock of product " + productId + " cannot be set to " + amount
+                        + " while orders in progress hold more than that");
+            }
+            if (result == StockTable.MISSING) {
+                return;
+            }
+            delta = change;
+            int replaced = committed.replace(productId, amount);
+            if (replaced != previous && replaced != StockTable.MISSING) {
+                // Another change committed in between: move available by what it added to committed as well
+                available.add(productId, previous - replaced);
+                delta += previous - replaced;
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                return;
+            }
+            if (kind != Kind.RESET) {
+                revert(available);
+            }
+            if (journaled) {
+                // The change may already be durable (a concurrent sync covered it): make its reversal durable too
+                revert(committed);
+                if (kind == Kind.RESET) {
+                    revert(available);
+                }
+                journal.sync(journal.position());
+            }
+        }
+
+        private void revert(StockTable table) {
+            switch (kind) {
+                case CREATE -> table.remove(productId);
+                case ADJUST -> table.add(productId, -amount);
+                case RESET -> table.add(productId, -delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.product.ledger;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Stock per product id, held in primitive arrays: no boxing and no object per product.
+ * The table is split into segments, each an open-addressing (linear probing) hash table behind its own lock,
+ * so changes to different products rarely contend. Every change is reported to the {@link Listener}
+ * while its segment lock is still held, so for any one product the listener sees changes in the order they applied.
+ */
+final class StockTable {
+
+    // Results of get/take/add/put/remove besides a (non-negative) stock level
+    static final int MISSING = -1;
+    static final int INSUFFICIENT = -2;
+
+    interface Listener {
+        /**
+         * {@code stock} is the new level, or negative when the product was removed.
+         */
+        void changed(long id, int stock);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final Listener listener;
+
+    StockTable(int concurrency, Listener listener) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(concurrency, 1 << 16)) * 2 - 1);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment();
+        }
+        this.listener = listener;
+    }
+
+    int get(long id) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = segment.find(id);
+            return slot < 0 ? MISSING : segment.values[slot];
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Take {@code quantity} units only if that many are there: a compare-and-set on the product's stock.
+     * Returns the new level, {@link #INSUFFICIENT} or {@link #MISSING}.
+     */
+    int take(long id, int quantity) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = segment.find(id);
+            if (slot < 0) {
+                return MISSING;
+            }
+            if (segment.values[slot] < quantity) {
+                return INSUFFICIENT;
+            }
+            return changed(id, segment.values[slot] -= quantity);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add a (possibly negative) delta unconditionally. Returns the new level or {@link #MISSING}.
+     */
+    int add(long id, int delta) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = segment.find(id);
+            return slot < 0 ? MISSING : changed(id, segment.values[slot] += delta);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Set a product's stock, adding it if new. Returns the previous level or {@link #MISSING}.
+     */
+    int put(long id, int stock) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            int previous = segment.put(id, stock);
+            changed(id, stock);
+            return previous;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Set a product's stock only if it is present. Returns the previous level or {@link #MISSING}.
+     */
+    int replace(long id, int stock) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.find(id) < 0) {
+                return MISSING;
+            }
+            int previous = segment.put(id, stock);
+            changed(id, stock);
+            return previous;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a product. Returns its last level or {@link #MISSING}.
+     */
+    int remove(long id) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            int previous = segment.remove(id);
+            if (previous != MISSING) {
+                changed(id, MISSING);
+            }
+            return previous;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add a product that is already persisted elsewhere, unless present; the listener is not told.
+     */
+    boolean putIfAbsent(long id, int stock) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.find(id) >= 0) {
+                return false;
+            }
+            segment.put(id, stock);
+            return true;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Set (or, with a negative stock, remove) a product while restoring state; the listener is not told.
+     */
+    void load(long id, int stock) {
+        Segment segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (stock < 0) {
+                segment.remove(id);
+            } else {
+                segment.put(id, stock);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            size += segment.size;
+            segment.lock.unlockRead(stamp);
+        }
+        return size;
+    }
+
+    private int changed(long id, int stock) {
+        listener.changed(id, stock);
+        return stock;
+    }
+
+    private Segment segmentFor(long id) {
+        return segments[(int) (hash(id) >>> 40) & (segments.length - 1)];
+    }
+
+    private static long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static final class Segment {
+
+        // Product ids are positive, so 0 marks an empty slot
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] values = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private int find(long id) {
+            int mask = keys.length - 1;
+            for (int slot = (int) hash(id) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int put(long id, int stock) {
+            int slot = find(id);
+            if (slot >= 0) {
+                int previous = values[slot];
+                values[slot] = stock;
+                return previous;
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            insert(id, stock);
+            size++;
+            return MISSING;
+        }
+
+        private void insert(long id, int stock) {
+            int mask = keys.length - 1;
+            int slot = (int) hash(id) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = id;
+            values[slot] = stock;
+        }
+
+        // Backward-shift deletion: pull later entries of the probe run into the gap, so no tombstones are needed
+        private int remove(long id) {
+            int gap = find(id);
+            if (gap < 0) {
+                return MISSING;
+            }
+            int previous = values[gap];
+            int mask = keys.length - 1;
+            keys[gap] = 0;
+            for (int slot = (gap + 1) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                int home = (int) hash(keys[slot]) & mask;
+                boolean reachable = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+                if (!reachable) {
+                    keys[gap] = keys[slot];
+                    values[gap] = values[slot];
+                    keys[slot] = 0;
+                    gap = slot;
+                }
+            }
+            size--;
+            return previous;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
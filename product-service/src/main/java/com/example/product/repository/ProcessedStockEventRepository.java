@@ -0,0 +1,7 @@
+package com.example.product.repository;
+
+import com.example.product.entity.ProcessedStockEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProcessedStockEventRepository extends JpaRepository<ProcessedStockEvent, String> {
+}
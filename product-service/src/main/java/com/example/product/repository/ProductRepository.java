@@ -1,7 +1,96 @@
 package com.example.product.repository;
 
 import com.example.product.entity.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /**
+     * Atomically take {@code quantity} units from stock, only if enough is available.
+     * Bumps the version, so cached copies and ETags see the new stock.
+     * Returns the number of rows updated (0 when the product is missing, short on stock, or striped).
+     */
+    @Modifying
+    @Query("update Product p set p.stock = p.stock - :quantity, p.version = p.version + 1 "
+            + "where p.id = :id and p.stock >= :quantity and (p.stockStripes is null or p.stockStripes <= 1)")
+    int decreaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Atomically add {@code quantity} units to stock.
+     * Returns the number of rows updated (0 when the product is missing or striped).
+     */
+    @Modifying
+    @Query("update Product p set p.stock = p.stock + :quantity, p.version = p.version + 1 "
+            + "where p.id = :id and (p.stockStripes is null or p.stockStripes <= 1)")
+    int increaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Number of stock stripes of a product (0 or 1 when not striped); empty when the product is missing.
+     * A plain read, so checking it never waits on the product row lock.
+     */
+    @Query("select coalesce(p.stockStripes, 0) from Product p where p.id = :id")
+    Optional<Integer> findStockStripesById(@Param("id") Long id);
+
+    /**
+     * Stock of a product (a missing stock value counts as none); empty when the product is missing.
+     */
+    @Query("select coalesce(p.stock, 0) from Product p where p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
+
+    @Query("select p.id from Product p where p.stockStripes > 1")
+    List<Long> findStripedIds();
+
+    /**
+     * Load a product and hold its row lock until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id = :id")
+    Optional<Product> lockById(@Param("id") Long id);
+
+    /**
+     * Refresh the stock snapshot of a product whose live stock is kept elsewhere (stripes, the in-memory ledger);
+     * bumps the version only if the stock changed.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Product p set p.stock = :stock, p.version = p.version + 1 where p.id = :id and p.stock <> :stock")
+    int updateStockSnapshot(@Param("id") Long id, @Param("stock") int stock);
+
+    /**
+     * Keyset page: the next {@code limit} products with an id above {@code afterId}, in id order.
+     */
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * All products in id order as a cursor-backed stream of read-only entities.
+     * Must be consumed (and closed) inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Product p order by p.id")
+    Stream<Product> streamAll();
+
+    /**
+     * Stock of every product as [id, stock] rows (a missing stock value counts as none), through a cursor.
+     * Must be consumed (and closed) inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id, coalesce(p.stock, 0) from Product p")
+    Stream<Object[]> streamStock();
 }
@@ -0,0 +1,54 @@
+package com.example.product.repository;
+
+import com.example.product.entity.StockStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockStripeRepository extends JpaRepository<StockStripe, Long> {
+
+    /**
+     * Numbers of the stripes that currently hold at least {@code quantity} units, read without locking.
+     * A projection, so no stale stripe entities linger in the persistence context.
+     */
+    @Query("select s.stripe from StockStripe s where s.productId = :productId and s.stock >= :quantity")
+    List<Integer> findStripesWithStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * A product's stripes, locked in stripe order until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StockStripe s where s.productId = :productId order by s.stripe")
+    List<StockStripe> lockByProductId(@Param("productId") Long productId);
+
+    /**
+     * Atomically take {@code quantity} units from one stripe, only if that stripe alone has enough.
+     */
+    @Modifying
+    @Query("update StockStripe s set s.stock = s.stock - :quantity "
+            + "where s.productId = :productId and s.stripe = :stripe and s.stock >= :quantity")
+    int decrease(@Param("productId") Long productId, @Param("stripe") int stripe, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update StockStripe s set s.stock = s.stock + :quantity where s.productId = :productId and s.stripe = :stripe")
+    int increase(@Param("productId") Long productId, @Param("stripe") int stripe, @Param("quantity") int quantity);
+
+    @Query("select coalesce(sum(s.stock), 0) from StockStripe s where s.productId = :productId")
+    long sumStock(@Param("productId") Long productId);
+
+    /**
+     * Total stock per product, as [productId, total] rows.
+     */
+    @Query("select s.productId, sum(s.stock) from StockStripe s where s.productId in :productIds group by s.productId")
+    List<Object[]> sumStockByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("delete from StockStripe s where s.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
@@ -0,0 +1,99 @@
+package com.example.product.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Verifies the HMAC-signed identity tokens minted by the gateway (and by order-service for
+ * its own calls). A token is "base64url(user\nroles\nexpiresAt).base64url(hmac)"; each distinct
+ * token is parsed once and its Authentication reused until the token expires.
+ */
+@Component
+public class InternalTokenVerifier {
+
+    private final SecretKeySpec key;
+    private final Cache<String, VerifiedToken> verified;
+
+    public InternalTokenVerifier(@Value("${internal-auth.secret}") String secret,
+                                 @Value("${internal-auth.cache.max-size:10000}") long maxSize,
+                                 @Value("${internal-auth.token-ttl:5m}") Duration tokenTtl) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(tokenTtl)
+                .build();
+    }
+
+    /**
+     * Returns the authentication carried by a valid, unexpired token, or null otherwise.
+     */
+    public Authentication verify(String token) {
+        VerifiedToken entry = verified.getIfPresent(token);
+        if (entry == null) {
+            entry = parse(token);
+            if (entry == null) {
+                return null;
+            }
+            verified.put(token, entry);
+        }
+        return entry.expiresAt() > Instant.now().getEpochSecond() ? entry.authentication() : null;
+    }
+
+    private VerifiedToken parse(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            String payload = token.substring(0, dot);
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+            String[] claims = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8).split("\n", -1);
+            if (claims.length != 3) {
+                return null;
+            }
+            List<SimpleGrantedAuthority> authorities = claims[1].isBlank() ? List.of()
+                    : Arrays.stream(claims[1].split(","))
+                            .map(String::trim)
+                            .map(SimpleGrantedAuthority::new)
+                            .toList();
+            Authentication authentication =
+                    UsernamePasswordAuthenticationToken.authenticated(claims[0], null, authorities);
+            return new VerifiedToken(authentication, Long.parseLong(claims[2]));
+        } catch (IllegalArgumentException e) {
+            // Malformed Base64 or expiry
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private record VerifiedToken(Authentication authentication, long expiresAt) {
+    }
+}
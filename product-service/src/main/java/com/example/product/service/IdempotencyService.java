@@ -0,0 +1,172 @@
+package com.example.product.service;
+
+import com.example.product.entity.IdempotencyRecord;
+import com.example.product.exception.BadRequestException;
+import com.example.product.exception.IdempotencyKeyReusedException;
+import com.example.product.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Makes writes safe to retry. The first request carrying an Idempotency-Key claims the key in
+ * the same transaction as its write and stores the response; later requests with that key get
+ * the stored response back without repeating the write. A concurrent retry blocks on the claimed
+ * key until the first request commits, then replays it. Failed requests leave no record.
+ * Responses are kept for {@code idempotency.ttl}, in the idempotency_keys table and in memory.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    // Set on responses that were replayed rather than produced by this request
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transaction;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> recent;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.cache.max-size:10000}") long maxSize) {
+        this.repository = repository;
+        this.transaction = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Run {@code action} at most once per {@code scope}, caller and key. Without a key the action
+     * simply runs. A replay must carry the same {@code request} as the original.
+     */
+    public <T> Result<T> execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null) {
+            return new Result<>(action.get(), false);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = scope + ":" + caller() + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse stored = lookup(id);
+        if (stored != null) {
+            return replay(stored, requestHash, responseType);
+        }
+        try {
+            Claim<T> claim = transaction.execute(status -> {
+                repository.deleteIfExpired(id, Instant.now());
+                IdempotencyRecord record = repository.saveAndFlush(
+                        new IdempotencyRecord(id, requestHash, Instant.now().plus(ttl)));
+                T response = action.get();
+                String body = write(response);
+                record.setResponseBody(body);
+                return new Claim<>(response, body);
+            });
+            // Only remembered in memory once committed
+            recent.put(id, new StoredResponse(requestHash, claim.body()));
+            return new Result<>(claim.response(), false);
+        } catch (DataIntegrityViolationException e) {
+            // Another request claimed the key first; it has committed by the time our insert fails
+            StoredResponse winner = lookup(id);
+            if (winner == null) {
+                throw e;
+            }
+            return replay(winner, requestHash, responseType);
+        }
+    }
+
+    /**
+     * Drop expired records; the in-memory copies expire on their own.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:10m}")
+    @Transactional
+    public void purgeExpired() {
+        repository.deleteExpired(Instant.now());
+    }
+
+    private StoredResponse lookup(String id) {
+        StoredResponse stored = recent.getIfPresent(id);
+        if (stored != null) {
+            return stored;
+        }
+        IdempotencyRecord record = repository.findById(id).orElse(null);
+        if (record == null || record.getExpiresAt().isBefore(Instant.now())) {
+            return null;
+        }
+        stored = new StoredResponse(record.getRequestHash(), record.getResponseBody());
+        recent.put(id, stored);
+        return stored;
+    }
+
+    private <T> Result<T> replay(StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(HEADER + " was already used for a different request");
+        }
+        try {
+            return new Result<>(objectMapper.readValue(stored.body(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response cannot be read back", e);
+        }
+    }
+
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "" : authentication.getName();
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(write(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored", e);
+        }
+    }
+
+    /**
+     * The response to send, and whether it was replayed from an earlier request.
+     */
+    public record Result<T>(T response, boolean replayed) {
+    }
+
+    private record StoredResponse(String requestHash, String body) {
+    }
+
+    private record Claim<T>(T response, String body) {
+    }
+}
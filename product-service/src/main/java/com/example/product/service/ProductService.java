@@ -2,34 +2,90 @@ package com.example.product.service;
 
 import com.example.product.entity.Product;
 import com.example.product.exception.BadRequestException;
+import com.example.product.exception.PreconditionFailedException;
 import com.example.product.exception.ProductNotFoundException;
+import com.example.product.ledger.StockLedger;
 import com.example.product.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+    // Upper bound on ids accepted by a single batch lookup
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final ProductRepository repository;
+    private final EntityManager entityManager;
+    private final StripedStock stripedStock;
+    private final StockLedger stockLedger;
+    private final OrderCacheNotifier orderCache;
 
-    public ProductService(ProductRepository repository) {
+    public ProductService(ProductRepository repository, EntityManager entityManager,
+                          StripedStock stripedStock, StockLedger stockLedger, OrderCacheNotifier orderCache) {
         this.repository = repository;
+        this.entityManager = entityManager;
+        this.stripedStock = stripedStock;
+        this.stockLedger = stockLedger;
+        this.orderCache = orderCache;
+    }
+
+    /**
+     * Get one keyset page of products: up to {@code limit} products with an id above {@code afterId}.
+     */
+    public List<Product> getProductsPage(long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return withLiveStock(repository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit)));
     }
 
     /**
-     * Get all products.
+     * Hand every product to {@code consumer} in id order, reading through a database cursor.
+     * Each entity is detached once consumed, so memory stays flat however large the catalog is.
      */
-    public List<Product> getAllProducts() {
-        return repository.findAll();
+    @Transactional(readOnly = true)
+    public void exportProducts(Consumer<Product> consumer) {
+        try (Stream<Product> products = repository.streamAll()) {
+            products.forEach(entity -> {
+                consumer.accept(entity);
+                entityManager.detach(entity);
+            });
+        }
     }
 
     /**
      * Get a product by ID.
      */
     public Product getProductById(Long id) {
-        return repository.findById(id)
+        Product product = repository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found with id " + id));
+        return withLiveStock(List.of(product)).get(0);
+    }
+
+    /**
+     * Get all products matching the given IDs in a single query.
+     * Unknown IDs are silently skipped.
+     */
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Cannot fetch more than " + MAX_BATCH_SIZE + " products at once");
+        }
+        return withLiveStock(repository.findAllById(ids));
     }
 
     /**
@@ -37,61 +93,226 @@ public class ProductService {
      */
     public Product createProduct(Product product) {
         validateProduct(product);
-        return repository.save(product);
+        // Striping is switched on through setStockStripes, which also creates the stripe rows
+        product.setStockStripes(null);
+        Product saved = repository.save(product);
+        if (stockLedger.isEnabled()) {
+            stockLedger.set(saved.getId(), saved.getStock());
+        }
+        return saved;
     }
 
     /**
      * Update an existing product (with validation).
      */
     public Product updateProduct(Long id, Product updated) {
+        return updateProduct(id, updated, null);
+    }
+
+    /**
+     * Update an existing product, but only if it is still at {@code expectedVersion} (when given).
+     * The row stays locked until commit, so a restripe or stock reconcile cannot interleave with the update;
+     * a striped product's new stock is spread over its stripes again.
+     */
+    @Transactional
+    public Product updateProduct(Long id, Product updated, Long expectedVersion) {
         validateProduct(updated);
 
-        Product existing = repository.findById(id)
+        Product existing = repository.lockById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found with id " + id));
+        if (expectedVersion != null && existing.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Product " + id + " is at version " + existing.getVersion()
+                    + ", not " + expectedVersion);
+        }
 
+        if (!Objects.equals(existing.getName(), updated.getName())) {
+            orderCache.productChanged(id);
+        }
         existing.setName(updated.getName());
         existing.setDescription(updated.getDescription());
         existing.setPrice(updated.getPrice());
-        existing.setStock(updated.getStock());
+        if (stockLedger.isEnabled()) {
+            existing.setStock(updated.getStock());
+            if (stockLedger.set(id, updated.getStock()) == StockLedger.Outcome.INSUFFICIENT) {
+                throw new BadRequestException("Stock of product " + id + " cannot be set to " + updated.getStock()
+                        + " while orders in progress hold more than that");
+            }
+        } else if (isStriped(existing)) {
+            stripedStock.restripe(existing, existing.getStockStripes(), updated.getStock());
+        } else {
+            existing.setStock(updated.getStock());
+        }
 
         return repository.save(existing);
     }
 
+    /**
+     * Spread a hot product's stock over {@code count} stripe rows, so concurrent orders for it
+     * stop queueing on one row lock; a count of 1 folds the stock back into the product row.
+     */
+    @Transactional
+    public Product setStockStripes(Long id, int count) {
+        if (count < 1 || count > StripedStock.MAX_STRIPES) {
+            throw new BadRequestException("Stock stripes must be between 1 and " + StripedStock.MAX_STRIPES);
+        }
+        if (stockLedger.isEnabled()) {
+            throw new BadRequestException("Stock stripes are not used while the in-memory stock ledger is enabled");
+        }
+        Product product = repository.lockById(id)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with id " + id));
+        stripedStock.restripe(product, count, null);
+        return repository.save(product);
+    }
+
     /**
      * Delete a product by ID.
      */
+    @Transactional
     public void deleteProduct(Long id) {
         if (!repository.existsById(id)) {
             throw new ProductNotFoundException("Cannot delete — product not found with id " + id);
         }
+        stripedStock.delete(id);
         repository.deleteById(id);
+        if (stockLedger.isEnabled()) {
+            stockLedger.remove(id);
+        }
+        orderCache.productChanged(id);
     }
     
     
     
     
+    /**
+     * Decrease stock when an order is placed.
+     * Runs as a single conditional UPDATE (on one stripe, for striped products), so concurrent orders can never oversell.
+     * With the stock ledger enabled it is a compare-and-set in memory instead, journaled before the transaction commits.
+     */
+    @Transactional
     public void decreaseStock(Long productId, int quantity) {
-        Product product = getProductById(productId);
-        if (product.getStock() < quantity) {
+        validateQuantity(quantity);
+        if (stockLedger.isEnabled()) {
+            requireApplied(stockLedger.take(productId, quantity), productId);
+            return;
+        }
+        // Striping may have been switched on or off since we last looked: re-check once before giving up
+        if (!takeStock(productId, quantity) && !(stripedStock.refresh(productId) && takeStock(productId, quantity))) {
+            if (!repository.existsById(productId)) {
+                throw new ProductNotFoundException("Product not found with id " + productId);
+            }
             throw new BadRequestException("Not enough stock for product ID " + productId);
         }
-        product.setStock(product.getStock() - quantity);
-        repository.save(product);
     }
 
     /**
      * Increase stock when an order is deleted (restock).
      */
+    @Transactional
     public void increaseStock(Long productId, int quantity) {
-        Product product = getProductById(productId);
-        product.setStock(product.getStock() + quantity);
-        repository.save(product);
+        validateQuantity(quantity);
+        if (stockLedger.isEnabled()) {
+            requireApplied(stockLedger.add(productId, quantity), productId);
+            return;
+        }
+        if (!addStock(productId, quantity) && !(stripedStock.refresh(productId) && addStock(productId, quantity))) {
+            throw new ProductNotFoundException("Product not found with id " + productId);
+        }
+    }
+
+    /**
+     * Reserve stock for several products at once (all-or-nothing).
+     * Rows are updated in ascending id order so concurrent reservations
+     * always lock in the same order and cannot deadlock each other.
+     */
+    @Transactional
+    public void reserveStock(Map<Long, Integer> quantities) {
+        validateQuantities(quantities);
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            decreaseStock(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Return previously reserved stock for several products at once (all-or-nothing).
+     */
+    @Transactional
+    public void releaseStock(Map<Long, Integer> quantities) {
+        validateQuantities(quantities);
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            increaseStock(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Apply signed stock changes for several products at once (all-or-nothing).
+     * Negative values take stock, positive values return it, zero is ignored.
+     * Like {@link #reserveStock}, rows are updated in ascending id order.
+     */
+    @Transactional
+    public void adjustStock(Map<Long, Integer> changes) {
+        validateQuantities(changes);
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(changes).entrySet()) {
+            int change = entry.getValue();
+            if (change < 0) {
+                decreaseStock(entry.getKey(), -change);
+            } else if (change > 0) {
+                increaseStock(entry.getKey(), change);
+            }
+        }
+    }
+
+    private void requireApplied(StockLedger.Outcome outcome, Long productId) {
+        switch (outcome) {
+            case MISSING -> throw new ProductNotFoundException("Product not found with id " + productId);
+            case INSUFFICIENT -> throw new BadRequestException("Not enough stock for product ID " + productId);
+            case APPLIED -> { }
+        }
+    }
+
+    private boolean takeStock(Long productId, int quantity) {
+        return stripedStock.isStriped(productId)
+                ? stripedStock.decrease(productId, quantity)
+                : repository.decreaseStock(productId, quantity) == 1;
+    }
+
+    private boolean addStock(Long productId, int quantity) {
+        return stripedStock.isStriped(productId)
+                ? stripedStock.increase(productId, quantity)
+                : repository.increaseStock(productId, quantity) == 1;
+    }
+
+    /**
+     * Replace the stock snapshot of products kept in the stock ledger or striped with their live stock.
+     * Those products are detached first, so the overlay is never written back.
+     */
+    private List<Product> withLiveStock(List<Product> products) {
+        if (stockLedger.isEnabled()) {
+            for (Product product : products) {
+                Integer live = stockLedger.stockOf(product.getId());
+                if (live != null && !live.equals(product.getStock())) {
+                    entityManager.detach(product);
+                    product.setStock(live);
+                }
+            }
+            return products;
+        }
+        List<Long> striped = products.stream().filter(ProductService::isStriped).map(Product::getId).toList();
+        if (striped.isEmpty()) {
+            return products;
+        }
+        Map<Long, Integer> totals = stripedStock.totals(striped);
+        for (Product product : products) {
+            if (isStriped(product)) {
+                entityManager.detach(product);
+                product.setStock(totals.getOrDefault(product.getId(), 0));
+            }
+        }
+        return products;
+    }
+
+    private static boolean isStriped(Product product) {
+        return product.getStockStripes() != null && product.getStockStripes() > 1;
     }
-    
-    
-    
-    
-    
 
     /**
      * Validate the product input before saving.
@@ -110,4 +331,21 @@ public class ProductService {
             throw new BadRequestException("Product stock cannot be negative");
         }
     }
+
+    private void validateQuantities(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new BadRequestException("At least one product quantity is required");
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new BadRequestException("Product ID and quantity are required");
+            }
+        }
+    }
+
+    private void validateQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new BadRequestException("Stock quantity must be positive");
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package com.example.product.service;
+
+import com.example.product.dto.StockEvent;
+import com.example.product.dto.StockEventResult;
+import com.example.product.dto.StockEventResult.Outcome;
+import com.example.product.entity.ProcessedStockEvent;
+import com.example.product.exception.BadRequestException;
+import com.example.product.exception.ProductNotFoundException;
+import com.example.product.repository.ProcessedStockEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies stock events relayed from order-service's outbox.
+ * Delivery is at-least-once, so every event is applied at most once: its id is recorded
+ * in the same transaction as the stock change, and ids already recorded are skipped.
+ */
+@Service
+public class StockEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockEventConsumer.class);
+
+    private final ProductService productService;
+    private final ProcessedStockEventRepository processedEvents;
+    private final TransactionTemplate transaction;
+
+    public StockEventConsumer(ProductService productService,
+                              ProcessedStockEventRepository processedEvents,
+                              TransactionTemplate transactionTemplate) {
+        this.productService = productService;
+        this.processedEvents = processedEvents;
+        this.transaction = transactionTemplate;
+    }
+
+    /**
+     * Apply events in the order given, each in its own transaction,
+     * so one rejected event does not hold back the rest of the batch.
+     */
+    public List<StockEventResult> apply(List<StockEvent> events) {
+        List<StockEventResult> results = new ArrayList<>(events.size());
+        for (StockEvent event : events) {
+            results.add(new StockEventResult(event.eventId(), applyOne(event)));
+        }
+        return results;
+    }
+
+    private Outcome applyOne(StockEvent event) {
+        if (event.eventId() == null || event.eventId().isBlank()) {
+            throw new BadRequestException("Stock event id is required");
+        }
+        if (processedEvents.existsById(event.eventId())) {
+            return Outcome.DUPLICATE;
+        }
+        try {
+            transaction.executeWithoutResult(status -> {
+                // Insert the marker first: a concurrent redelivery fails here, before touching stock
+                processedEvents.saveAndFlush(new ProcessedStockEvent(event.eventId(), event.orderId(), true));
+                productService.adjustStock(event.stockChanges());
+            });
+            return Outcome.APPLIED;
+        } catch (DataIntegrityViolationException e) {
+            return Outcome.DUPLICATE;
+        } catch (BadRequestException | ProductNotFoundException e) {
+            logger.warn("Rejected stock event {} for order {}: {}", event.eventId(), event.orderId(), e.getMessage());
+            return reject(event);
+        }
+    }
+
+    private Outcome reject(StockEvent event) {
+        try {
+            transaction.executeWithoutResult(status ->
+                    processedEvents.saveAndFlush(new ProcessedStockEvent(event.eventId(), event.orderId(), false)));
+            return Outcome.REJECTED;
+        } catch (DataIntegrityViolationException e) {
+            return Outcome.DUPLICATE;
+        }
+    }
+}
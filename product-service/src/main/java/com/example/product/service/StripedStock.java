@@ -0,0 +1,193 @@
+package com.example.product.service;
+
+import com.example.product.entity.Product;
+import com.example.product.entity.StockStripe;
+import com.example.product.repository.ProductRepository;
+import com.example.product.repository.StockStripeRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Striped stock for hot products. A striped product's stock lives in N product_stock_stripes rows:
+ * an order takes from one random stripe that can cover it, so N orders for the same product can
+ * commit in parallel instead of queueing on the product row. Only when no single stripe is big
+ * enough are all stripes locked and drawn down together.
+ * <p>
+ * The products.stock column of a striped product is a snapshot, refreshed by {@link #reconcile()};
+ * reads that need the live figure sum the stripes.
+ */
+@Service
+public class StripedStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedStock.class);
+
+    static final int MAX_STRIPES = 64;
+
+    private final ProductRepository products;
+    private final StockStripeRepository stripes;
+    private final TransactionTemplate transaction;
+    // productId -> stripe count (0 when not striped), so unstriped products need no extra query
+    private final LoadingCache<Long, Integer> stripeCounts;
+
+    public StripedStock(ProductRepository products,
+                        StockStripeRepository stripes,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${product.stock-stripes.cache.max-size:100000}") long maxSize,
+                        @Value("${product.stock-stripes.cache.ttl:10s}") Duration ttl) {
+        this.products = products;
+        this.stripes = stripes;
+        this.transaction = transactionTemplate;
+        this.stripeCounts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build(id -> products.findStockStripesById(id).orElse(0));
+    }
+
+    /**
+     * Whether the product's stock is striped, as last seen by this instance.
+     * The stock queries re-check in SQL, so a stale answer costs a retry, never a wrong count.
+     */
+    public boolean isStriped(Long productId) {
+        return stripeCounts.get(productId) > 1;
+    }
+
+    /**
+     * Drop the cached striping of a product and report whether it changed.
+     */
+    public boolean refresh(Long productId) {
+        Integer before = stripeCounts.getIfPresent(productId);
+        stripeCounts.invalidate(productId);
+        return !Objects.equals(before, stripeCounts.get(productId));
+    }
+
+    /**
+     * Take {@code quantity} units from a striped product. Returns false if its stripes together hold too little
+     * (or it has none, e.g. striping was just switched off). Must run inside a transaction.
+     */
+    public boolean decrease(Long productId, int quantity) {
+        // Try the stripes that looked big enough, in random order, without locking any of them first
+        List<Integer> candidates = new ArrayList<>(stripes.findStripesWithStock(productId, quantity));
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+        for (int stripe : candidates) {
+            if (stripes.decrease(productId, stripe, quantity) == 1) {
+                return true;
+            }
+        }
+
+        // No single stripe can cover it: lock them all (in stripe order) and draw them down together
+        List<StockStripe> locked = stripes.lockByProductId(productId);
+        long total = locked.stream().mapToLong(StockStripe::getStock).sum();
+        if (locked.isEmpty() || total < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        for (StockStripe stripe : locked) {
+            int taken = Math.min(stripe.getStock(), remaining);
+            stripe.setStock(stripe.getStock() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return {@code quantity} units to a random stripe. Returns false if the product has no stripes.
+     */
+    public boolean increase(Long productId, int quantity) {
+        int count = stripeCounts.get(productId);
+        return count > 1 && stripes.increase(productId, ThreadLocalRandom.current().nextInt(count), quantity) == 1;
+    }
+
+    /**
+     * Live stock of a striped product: the sum of its stripes.
+     */
+    public int total(Long productId) {
+        return (int) stripes.sumStock(productId);
+    }
+
+    /**
+     * Live stock of several striped products in one query.
+     */
+    public Map<Long, Integer> totals(Collection<Long> productIds) {
+        Map<Long, Integer> totals = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return totals;
+        }
+        for (Object[] row : stripes.sumStockByProductIds(productIds)) {
+            totals.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return totals;
+    }
+
+    /**
+     * Spread a product's stock over {@code count} stripes (1 switches striping off), keeping its current
+     * total unless {@code newTotal} is given. The product must be locked by the caller's transaction.
+     */
+    public void restripe(Product product, int count, Integer newTotal) {
+        Long productId = product.getId();
+        List<StockStripe> current = stripes.lockByProductId(productId);
+        int total = newTotal != null ? newTotal
+                : current.isEmpty() ? product.getStock()
+                : current.stream().mapToInt(StockStripe::getStock).sum();
+
+        stripes.deleteByProductId(productId);
+        if (count > 1) {
+            for (int i = 0; i < count; i++) {
+                // The first (total % count) stripes get one unit more
+                stripes.save(new StockStripe(productId, i, total / count + (i < total % count ? 1 : 0)));
+            }
+        }
+        product.setStockStripes(count > 1 ? count : null);
+        product.setStock(total);
+        stripeCounts.invalidate(productId);
+    }
+
+    /**
+     * Drop a product's stripes, e.g. when the product itself is deleted.
+     */
+    public void delete(Long productId) {
+        stripes.deleteByProductId(productId);
+        stripeCounts.invalidate(productId);
+    }
+
+    /**
+     * Refresh the stock snapshot of every striped product, and even out stripes that ran dry
+     * while others still have stock, so orders keep hitting the lock-free path.
+     */
+    @Scheduled(fixedDelayString = "${product.stock-stripes.reconcile-interval:5s}")
+    public void reconcile() {
+        for (Long productId : products.findStripedIds()) {
+            try {
+                transaction.executeWithoutResult(status -> rebalanceIfDry(productId));
+                products.updateStockSnapshot(productId, total(productId));
+            } catch (RuntimeException e) {
+                logger.warn("Could not reconcile striped stock of product {}: {}", productId, e.getMessage());
+            }
+        }
+    }
+
+    private void rebalanceIfDry(Long productId) {
+        int count = stripeCounts.get(productId);
+        boolean dry = stripes.findStripesWithStock(productId, 1).size() < count;
+        if (!dry || total(productId) < count) {
+            return;
+        }
+        List<StockStripe> locked = stripes.lockByProductId(productId);
+        int lockedTotal = locked.stream().mapToInt(StockStripe::getStock).sum();
+        for (int i = 0; i < locked.size(); i++) {
+            locked.get(i).setStock(lockedTotal / locked.size() + (i < lockedTotal % locked.size() ? 1 : 0));
+        }
+    }
+}
@@ -39,7 +39,17 @@ class ProductControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].name", is("Laptop")))
-                .andExpect(jsonPath("$[0].price", is(1200.0)));
+                .andExpect(jsonPath("$[0].price", is(1200.0)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void testGetAllProducts_FullPageLinksToTheNext() throws Exception {
+        mockMvc.perform(get("/products").param("limit", "1")
+                        .with(httpBasic("admin", "password")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string("Link", matchesPattern("<\\?afterId=\\d+&limit=1>; rel=\"next\"")));
     }
 
     @Test
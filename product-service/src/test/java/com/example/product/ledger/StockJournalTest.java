@@ -0,0 +1,207 @@
+package com.example.product.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplaysRecordsAcrossSegmentsInOrder() throws IOException {
+        try (StockJournal journal = new StockJournal(directory, true)) {
+            journal.open();
+            journal.append(1L, 10);
+            journal.append(2L, 5);
+            journal.sync(journal.position());
+            journal.rotate();
+            journal.append(1L, 7);
+            journal.append(2L, StockTable.MISSING);
+        }
+
+        assertEquals(List.of("1=10", "2=5", "1=7", "2=-1"), replay());
+    }
+
+    @Test
+    void testReplayStopsAtTornRecord() throws IOException {
+        Path segment;
+        try (StockJournal journal = new StockJournal(directory, false)) {
+            journal.open();
+            journal.append(1L, 10);
+            journal.append(1L, 9);
+            segment = journal.segments().get(0);
+        }
+        // A crash halfway through writing the next record
+        Files.write(segment, new byte[StockJournal.RECORD_SIZE / 2], StandardOpenOption.APPEND);
+        // ... and a flipped bit in the second one
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[StockJournal.RECORD_SIZE + 11] ^= 1;
+        Files.write(segment, bytes);
+
+        assertEquals(List.of("1=10"), replay());
+    }
+
+    @Test
+    void testSecondJournalOnSameDirectoryIsRefused() throws IOException {
+        try (StockJournal ignored = new StockJournal(directory, true)) {
+            assertThrows(IllegalStateException.class, () -> new StockJournal(directory, true));
+        }
+    }
+
+    @Test
+    void testFailedWriteStopsTheJournalAndLeavesNoRecordsOfIt() throws IOException {
+        List<FailingChannel> channels = new ArrayList<>();
+        StockJournal journal = new StockJournal(directory, true, file -> {
+            FailingChannel channel = new FailingChannel(FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+            channels.add(channel);
+            return channel;
+        });
+        journal.open();
+        journal.append(1L, 10);
+        journal.sync(journal.position());
+
+        // The disk fails after taking one of the two records
+        channels.get(0).failing = true;
+        journal.append(2L, 5);
+        journal.append(3L, 7);
+        assertThrows(UncheckedIOException.class, () -> journal.sync(journal.position()));
+
+        // Recovered disk or not, nothing after the failure is reported durable
+        channels.get(0).failing = false;
+        journal.append(4L, 1);
+        assertThrows(UncheckedIOException.class, () -> journal.sync(journal.position()));
+        assertThrows(IOException.class, journal::rotate);
+        assertThrows(IOException.class, journal::close);
+
+        assertEquals(List.of("1=10"), replay());
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        try (StockJournal journal = new StockJournal(directory, true)) {
+            journal.replay((id, stock) -> records.add(id + "=" + stock));
+        }
+        return records;
+    }
+
+    // Writes at most one record per call while failing, then throws, like a disk that fills up mid-write
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel delegate;
+        volatile boolean failing;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!failing) {
+                return delegate.write(src);
+            }
+            ByteBuffer head = src.slice(src.position(), Math.min(src.remaining(), StockJournal.RECORD_SIZE));
+            delegate.write(head);
+            src.position(src.position() + head.position());
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
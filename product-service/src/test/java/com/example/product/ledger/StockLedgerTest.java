@@ -0,0 +1,134 @@
+package com.example.product.ledger;
+
+import com.example.product.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class StockLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private ProductRepository repository;
+
+    private StockLedger ledger;
+
+    @BeforeEach
+    void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        when(repository.streamStock()).thenReturn(Stream.<Object[]>of(new Object[]{1L, 10}));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+        ledger = new StockLedger(repository, transactionTemplate, true, directory, false, 4, 100);
+        ledger.start();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        ledger.stop();
+    }
+
+    @Test
+    void testRolledBackTakeIsNeverFlushed() throws IOException {
+        List<TransactionSynchronization> transaction = inTransaction(() ->
+                assertEquals(StockLedger.Outcome.APPLIED, ledger.take(1L, 3)));
+
+        // Flushing while the reservation is still open writes nothing
+        ledger.flush();
+        verify(repository, never()).updateStockSnapshot(anyLong(), anyInt());
+        assertEquals(10, ledger.stockOf(1L));
+
+        transaction.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        ledger.flush();
+        verify(repository, never()).updateStockSnapshot(anyLong(), anyInt());
+        assertEquals(StockLedger.Outcome.APPLIED, ledger.take(1L, 10));
+    }
+
+    @Test
+    void testCommittedTakeIsFlushed() throws IOException {
+        List<TransactionSynchronization> transaction = inTransaction(() -> ledger.take(1L, 4));
+        transaction.forEach(sync -> sync.beforeCommit(false));
+        transaction.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        ledger.flush();
+
+        verify(repository).updateStockSnapshot(1L, 6);
+        assertEquals(6, ledger.stockOf(1L));
+    }
+
+    @Test
+    void testRollbackAfterJournalingRevertsCommittedStock() throws IOException {
+        List<TransactionSynchronization> transaction = inTransaction(() -> ledger.take(1L, 4));
+        transaction.forEach(sync -> sync.beforeCommit(false));
+        // e.g. the database commit itself failed
+        transaction.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        ledger.flush();
+
+        assertEquals(10, ledger.stockOf(1L));
+        verify(repository, never()).updateStockSnapshot(1L, 6);
+    }
+
+    @Test
+    void testSetDuringOpenReservationSurvivesItsRollback() throws IOException {
+        List<TransactionSynchronization> reservation = inTransaction(() -> ledger.take(1L, 3));
+
+        List<TransactionSynchronization> edit = inTransaction(() ->
+                assertEquals(StockLedger.Outcome.APPLIED, ledger.set(1L, 20)));
+        edit.forEach(sync -> sync.beforeCommit(false));
+        edit.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(20, ledger.stockOf(1L));
+
+        reservation.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        ledger.flush();
+
+        verify(repository).updateStockSnapshot(1L, 20);
+        assertEquals(20, ledger.stockOf(1L));
+        assertEquals(StockLedger.Outcome.INSUFFICIENT, ledger.take(1L, 21));
+        assertEquals(StockLedger.Outcome.APPLIED, ledger.take(1L, 20));
+    }
+
+    @Test
+    void testSetBelowOpenReservationsIsRefused() {
+        inTransaction(() -> ledger.take(1L, 8));
+
+        assertEquals(StockLedger.Outcome.INSUFFICIENT, ledger.set(1L, 5));
+        assertEquals(StockLedger.Outcome.APPLIED, ledger.set(1L, 8));
+    }
+
+    @Test
+    void testInsufficientStockIsRefused() {
+        assertEquals(StockLedger.Outcome.INSUFFICIENT, ledger.take(1L, 11));
+        assertEquals(StockLedger.Outcome.MISSING, ledger.take(2L, 1));
+    }
+
+    // Runs work inside a simulated transaction and returns the synchronizations it registered
+    private static List<TransactionSynchronization> inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
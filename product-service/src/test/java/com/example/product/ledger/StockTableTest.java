@@ -0,0 +1,53 @@
+package com.example.product.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockTableTest {
+
+    private final List<long[]> changes = new ArrayList<>();
+    private final StockTable table = new StockTable(4, (id, stock) -> changes.add(new long[]{id, stock}));
+
+    @Test
+    void testTake_OnlyWhenEnoughStock() {
+        table.put(1L, 5);
+
+        assertEquals(2, table.take(1L, 3));
+        assertEquals(StockTable.INSUFFICIENT, table.take(1L, 3));
+        assertEquals(StockTable.MISSING, table.take(2L, 1));
+        assertEquals(2, table.get(1L));
+    }
+
+    @Test
+    void testChangesAreReported_LoadsAreNot() {
+        table.load(1L, 10);
+        table.putIfAbsent(2L, 4);
+        table.take(1L, 3);
+        table.add(2L, 1);
+        table.remove(1L);
+
+        assertEquals(3, changes.size());
+        assertArrayEquals(new long[]{1L, 7}, changes.get(0));
+        assertArrayEquals(new long[]{2L, 5}, changes.get(1));
+        assertArrayEquals(new long[]{1L, StockTable.MISSING}, changes.get(2));
+    }
+
+    @Test
+    void testGrowsAndRemovesWithoutLosingEntries() {
+        for (long id = 1; id <= 10_000; id++) {
+            table.put(id, (int) id);
+        }
+        for (long id = 1; id <= 10_000; id += 2) {
+            assertEquals((int) id, table.remove(id));
+        }
+
+        assertEquals(5_000, table.size());
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id % 2 == 0 ? (int) id : StockTable.MISSING, table.get(id));
+        }
+    }
+}
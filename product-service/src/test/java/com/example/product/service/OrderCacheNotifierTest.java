@@ -0,0 +1,47 @@
+package com.example.product.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class OrderCacheNotifierTest {
+
+    private DiscoveryClient discoveryClient;
+    private MockRestServiceServer server;
+    private OrderCacheNotifier notifier;
+
+    @BeforeEach
+    void setup() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        discoveryClient = mock(DiscoveryClient.class);
+        notifier = new OrderCacheNotifier(discoveryClient, restTemplate, "order-service", Runnable::run);
+    }
+
+    @Test
+    void testProductChanged_EvictsOnEveryInstanceEvenIfOneFails() {
+        when(discoveryClient.getInstances("order-service")).thenReturn(List.of(
+                new DefaultServiceInstance("order-1", "order-service", "order-a", 8083, false),
+                new DefaultServiceInstance("order-2", "order-service", "order-b", 8083, false)));
+        server.expect(requestTo("http://order-a:8083/cache/products/7"))
+                .andExpect(method(HttpMethod.DELETE))
+                .andRespond(withServerError());
+        server.expect(requestTo("http://order-b:8083/cache/products/7"))
+                .andExpect(method(HttpMethod.DELETE))
+                .andRespond(withSuccess());
+
+        notifier.productChanged(7L);
+
+        server.verify();
+    }
+}
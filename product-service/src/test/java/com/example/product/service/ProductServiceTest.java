@@ -2,16 +2,24 @@ package com.example.product.service;
 
 import com.example.product.entity.Product;
 import com.example.product.exception.BadRequestException;
+import com.example.product.exception.PreconditionFailedException;
 import com.example.product.exception.ProductNotFoundException;
+import com.example.product.ledger.StockLedger;
 import com.example.product.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,6 +29,18 @@ class ProductServiceTest {
     @Mock
     private ProductRepository repository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private StripedStock stripedStock;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private OrderCacheNotifier orderCache;
+
     @InjectMocks
     private ProductService service;
 
@@ -30,17 +50,37 @@ class ProductServiceTest {
     }
 
     @Test
-    void testGetAllProducts() {
-        when(repository.findAll()).thenReturn(List.of(
+    void testGetProductsPage() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100))).thenReturn(List.of(
                 new Product("Laptop", "Gaming Laptop", 1200.0, 10),
                 new Product("Phone", "Flagship Phone", 800.0, 15)
         ));
 
-        List<Product> result = service.getAllProducts();
+        List<Product> result = service.getProductsPage(0L, 100);
 
         assertEquals(2, result.size());
         assertEquals("Laptop", result.get(0).getName());
-        verify(repository, times(1)).findAll();
+        verify(repository, times(1)).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100));
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    void testGetProductsPage_RejectsOversizedLimit() {
+        assertThrows(BadRequestException.class, () -> service.getProductsPage(0L, ProductService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testExportProducts_DetachesEachProduct() {
+        Product laptop = new Product("Laptop", "Gaming Laptop", 1200.0, 10);
+        Product phone = new Product("Phone", "Flagship Phone", 800.0, 15);
+        when(repository.streamAll()).thenReturn(Stream.of(laptop, phone));
+
+        List<String> names = new ArrayList<>();
+        service.exportProducts(product -> names.add(product.getName()));
+
+        assertEquals(List.of("Laptop", "Phone"), names);
+        verify(entityManager).detach(laptop);
+        verify(entityManager).detach(phone);
     }
 
     @Test
@@ -56,6 +96,38 @@ class ProductServiceTest {
         verify(repository).findById(1L);
     }
 
+    @Test
+    void testUpdateProduct_StaleVersionIsRejected() {
+        Product existing = new Product("Monitor", "Full HD Display", 300.0, 5);
+        existing.setVersion(3);
+        when(repository.lockById(1L)).thenReturn(Optional.of(existing));
+
+        Product updated = new Product("Monitor", "4K Display", 450.0, 5);
+
+        assertThrows(PreconditionFailedException.class, () -> service.updateProduct(1L, updated, 2L));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testGetProductsByIds() {
+        List<Long> ids = List.of(1L, 2L);
+        when(repository.findAllById(ids)).thenReturn(List.of(
+                new Product("Laptop", "Gaming Laptop", 1200.0, 10),
+                new Product("Phone", "Flagship Phone", 800.0, 15)
+        ));
+
+        List<Product> result = service.getProductsByIds(ids);
+
+        assertEquals(2, result.size());
+        verify(repository, times(1)).findAllById(ids);
+    }
+
+    @Test
+    void testGetProductsByIds_EmptyIds_SkipsRepository() {
+        assertTrue(service.getProductsByIds(List.of()).isEmpty());
+        verify(repository, never()).findAllById(any());
+    }
+
     @Test
     void testCreateProduct_Valid() {
         Product newProduct = new Product("Keyboard", "RGB Keyboard", 50.0, 8);
@@ -83,7 +155,7 @@ class ProductServiceTest {
         Product existing = new Product("Laptop", "Old model", 1000.0, 3);
         Product updated = new Product("Laptop", "Updated model", 1200.0, 5);
 
-        when(repository.findById(1L)).thenReturn(Optional.of(existing));
+        when(repository.lockById(1L)).thenReturn(Optional.of(existing));
         when(repository.save(existing)).thenReturn(existing);
 
         Product result = service.updateProduct(1L, updated);
@@ -92,6 +164,34 @@ class ProductServiceTest {
         assertEquals(1200.0, result.getPrice());
         assertEquals(5, result.getStock());
         verify(repository).save(existing);
+        verify(orderCache, never()).productChanged(any());
+    }
+
+    @Test
+    void testUpdateProduct_RenameEvictsOrderCache() {
+        Product existing = new Product("Laptop", "Old model", 1000.0, 3);
+        when(repository.lockById(1L)).thenReturn(Optional.of(existing));
+        when(repository.save(existing)).thenReturn(existing);
+
+        service.updateProduct(1L, new Product("Laptop Pro", "Old model", 1000.0, 3));
+
+        verify(orderCache).productChanged(1L);
+    }
+
+    @Test
+    void testUpdateProduct_StripedProduct_RestripesLockedRow() {
+        Product existing = new Product("Laptop", "Old model", 1000.0, 3);
+        existing.setId(1L);
+        existing.setStockStripes(4);
+        Product updated = new Product("Laptop", "Updated model", 1200.0, 40);
+
+        when(repository.lockById(1L)).thenReturn(Optional.of(existing));
+        when(repository.save(existing)).thenReturn(existing);
+
+        service.updateProduct(1L, updated);
+
+        verify(stripedStock).restripe(existing, 4, 40);
+        verify(repository, never()).findById(any());
     }
 
     @Test
@@ -99,6 +199,7 @@ class ProductServiceTest {
         when(repository.existsById(1L)).thenReturn(true);
         service.deleteProduct(1L);
         verify(repository).deleteById(1L);
+        verify(orderCache).productChanged(1L);
     }
 
     @Test
@@ -107,4 +208,136 @@ class ProductServiceTest {
         assertThrows(ProductNotFoundException.class, () -> service.deleteProduct(99L));
         verify(repository, never()).deleteById(any());
     }
+
+    @Test
+    void testDecreaseStock_Success() {
+        when(repository.decreaseStock(1L, 3)).thenReturn(1);
+
+        service.decreaseStock(1L, 3);
+
+        verify(repository).decreaseStock(1L, 3);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testDecreaseStock_NotEnoughStock_ThrowsException() {
+        when(repository.decreaseStock(1L, 50)).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> service.decreaseStock(1L, 50));
+    }
+
+    @Test
+    void testDecreaseStock_ProductMissing_ThrowsNotFound() {
+        when(repository.decreaseStock(99L, 1)).thenReturn(0);
+        when(repository.existsById(99L)).thenReturn(false);
+
+        assertThrows(ProductNotFoundException.class, () -> service.decreaseStock(99L, 1));
+    }
+
+    @Test
+    void testDecreaseStock_StripedProduct_TakesFromStripes() {
+        when(stripedStock.isStriped(1L)).thenReturn(true);
+        when(stripedStock.decrease(1L, 3)).thenReturn(true);
+
+        service.decreaseStock(1L, 3);
+
+        verify(stripedStock).decrease(1L, 3);
+        verify(repository, never()).decreaseStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void testDecreaseStock_StripingSwitchedOn_RetriesOnStripes() {
+        when(repository.decreaseStock(1L, 3)).thenReturn(0);
+        when(stripedStock.isStriped(1L)).thenReturn(false, true);
+        when(stripedStock.refresh(1L)).thenReturn(true);
+        when(stripedStock.decrease(1L, 3)).thenReturn(true);
+
+        service.decreaseStock(1L, 3);
+
+        verify(stripedStock).decrease(1L, 3);
+        verify(repository, never()).existsById(any());
+    }
+
+    @Test
+    void testGetProductById_StripedProduct_ReturnsLiveStock() {
+        Product product = new Product("Laptop", "Gaming Laptop", 1200.0, 10);
+        product.setId(1L);
+        product.setStockStripes(4);
+        when(repository.findById(1L)).thenReturn(Optional.of(product));
+        when(stripedStock.totals(List.of(1L))).thenReturn(Map.of(1L, 7));
+
+        Product result = service.getProductById(1L);
+
+        assertEquals(7, result.getStock());
+        verify(entityManager).detach(product);
+    }
+
+    @Test
+    void testSetStockStripes_RejectsOutOfRangeCount() {
+        assertThrows(BadRequestException.class, () -> service.setStockStripes(1L, StripedStock.MAX_STRIPES + 1));
+        verify(stripedStock, never()).restripe(any(), anyInt(), any());
+    }
+
+    @Test
+    void testDecreaseStock_LedgerEnabled_NeverTouchesTheTable() {
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.take(1L, 3)).thenReturn(StockLedger.Outcome.APPLIED);
+        when(stockLedger.take(1L, 50)).thenReturn(StockLedger.Outcome.INSUFFICIENT);
+        when(stockLedger.take(99L, 1)).thenReturn(StockLedger.Outcome.MISSING);
+
+        service.decreaseStock(1L, 3);
+        assertThrows(BadRequestException.class, () -> service.decreaseStock(1L, 50));
+        assertThrows(ProductNotFoundException.class, () -> service.decreaseStock(99L, 1));
+
+        verify(repository, never()).decreaseStock(anyLong(), anyInt());
+        verify(repository, never()).existsById(any());
+    }
+
+    @Test
+    void testIncreaseStock_ProductMissing_ThrowsNotFound() {
+        when(repository.increaseStock(99L, 1)).thenReturn(0);
+
+        assertThrows(ProductNotFoundException.class, () -> service.increaseStock(99L, 1));
+    }
+
+    @Test
+    void testReserveStock_UpdatesInAscendingIdOrder() {
+        when(repository.decreaseStock(anyLong(), anyInt())).thenReturn(1);
+
+        service.reserveStock(Map.of(3L, 1, 1L, 2, 2L, 5));
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).decreaseStock(1L, 2);
+        inOrder.verify(repository).decreaseStock(2L, 5);
+        inOrder.verify(repository).decreaseStock(3L, 1);
+    }
+
+    @Test
+    void testReserveStock_StopsAtFirstShortage() {
+        when(repository.decreaseStock(1L, 2)).thenReturn(1);
+        when(repository.decreaseStock(2L, 5)).thenReturn(0);
+        when(repository.existsById(2L)).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> service.reserveStock(Map.of(1L, 2, 2L, 5, 3L, 1)));
+        verify(repository, never()).decreaseStock(3L, 1);
+    }
+
+    @Test
+    void testReleaseStock_EmptyMap_ThrowsException() {
+        assertThrows(BadRequestException.class, () -> service.releaseStock(Map.of()));
+    }
+
+    @Test
+    void testAdjustStock_AppliesSignedChangesAndSkipsZero() {
+        when(repository.decreaseStock(anyLong(), anyInt())).thenReturn(1);
+        when(repository.increaseStock(anyLong(), anyInt())).thenReturn(1);
+
+        service.adjustStock(Map.of(1L, -2, 2L, 4, 3L, 0));
+
+        verify(repository).decreaseStock(1L, 2);
+        verify(repository).increaseStock(2L, 4);
+        verify(repository, never()).decreaseStock(eq(3L), anyInt());
+        verify(repository, never()).increaseStock(eq(3L), anyInt());
+    }
 }
@@ -0,0 +1,79 @@
+package com.example.product.service;
+
+import com.example.product.dto.StockEvent;
+import com.example.product.dto.StockEventResult;
+import com.example.product.dto.StockEventResult.Outcome;
+import com.example.product.exception.BadRequestException;
+import com.example.product.repository.ProcessedStockEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StockEventConsumerTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private ProcessedStockEventRepository processedEvents;
+
+    private StockEventConsumer consumer;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
+        consumer = new StockEventConsumer(productService, processedEvents, transactionTemplate);
+    }
+
+    @Test
+    void testApply_AppliesNewEventsAndSkipsSeenOnes() {
+        when(processedEvents.existsById("seen")).thenReturn(true);
+
+        List<StockEventResult> results = consumer.apply(List.of(
+                new StockEvent("new", 1L, Map.of(1L, -2)),
+                new StockEvent("seen", 2L, Map.of(1L, -3))));
+
+        assertEquals(List.of(new StockEventResult("new", Outcome.APPLIED),
+                new StockEventResult("seen", Outcome.DUPLICATE)), results);
+        verify(productService, times(1)).adjustStock(any());
+        verify(productService).adjustStock(Map.of(1L, -2));
+    }
+
+    @Test
+    void testApply_ConcurrentRedeliveryIsADuplicate() {
+        when(processedEvents.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        List<StockEventResult> results = consumer.apply(List.of(new StockEvent("e1", 1L, Map.of(1L, -2))));
+
+        assertEquals(Outcome.DUPLICATE, results.get(0).outcome());
+        verify(productService, never()).adjustStock(any());
+    }
+
+    @Test
+    void testApply_ShortageRejectsOnlyThatEvent() {
+        doThrow(new BadRequestException("Not enough stock for product ID 1"))
+                .when(productService).adjustStock(Map.of(1L, -50));
+
+        List<StockEventResult> results = consumer.apply(List.of(
+                new StockEvent("short", 1L, Map.of(1L, -50)),
+                new StockEvent("ok", 2L, Map.of(2L, -1))));
+
+        assertEquals(Outcome.REJECTED, results.get(0).outcome());
+        assertEquals(Outcome.APPLIED, results.get(1).outcome());
+        // Marker for the applied attempt (rolled back), the rejection, and the second event
+        verify(processedEvents, times(3)).saveAndFlush(any());
+    }
+}